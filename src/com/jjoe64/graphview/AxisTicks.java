@@ -0,0 +1,136 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+package com.jjoe64.graphview;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ticks of one axis at nice round values (1, 2 or 5 * 10^k).
+ * The ticks are multiples of the step, so when the axis is scrolled
+ * the ticks stay where they are, only ticks at the edges come and go.
+ * The labels are cached by tick, so they are formatted only once.
+ */
+class AxisTicks {
+	static private final int MAX_TICKS = 100;
+	static private final int MAX_CACHED_LABELS = 2 * MAX_TICKS;
+
+	private double step;
+	private long first;
+	private int count;
+	private final Map<Long, String> labels = new LinkedHashMap<Long, String>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+			return size() > MAX_CACHED_LABELS;
+		}
+	};
+
+	/**
+	 * calculates the ticks in [min, max]
+	 * @param maxTicks max number of ticks
+	 */
+	void update(double min, double max, int maxTicks) {
+		maxTicks = Math.max(Math.min(maxTicks, MAX_TICKS), 2);
+		double newStep = niceStep(max - min, maxTicks);
+		if (Double.isNaN(newStep)) {
+			step = newStep;
+			first = 0;
+			count = 0;
+			return;
+		}
+		// the smallest nice step with not more than maxTicks ticks in [min, max]
+		while (countTicks(min, max, newStep) > maxTicks) {
+			newStep = niceStep(newStep * 1.5, 1);
+		}
+		if (newStep != step) {
+			step = newStep;
+			labels.clear();
+		}
+		first = firstTick(min, step);
+		count = countTicks(min, max, step);
+	}
+
+	/**
+	 * a small tolerance, so a tick exactly at min or max is not lost by rounding
+	 */
+	static private long firstTick(double min, double step) {
+		return (long) Math.ceil(min / step - 1e-9);
+	}
+
+	static private int countTicks(double min, double max, double step) {
+		long last = (long) Math.floor(max / step + 1e-9);
+		return (int) Math.max(last - firstTick(min, step) + 1, 0);
+	}
+
+	int getCount() {
+		return count;
+	}
+
+	/**
+	 * @param i 0 <= i < getCount()
+	 */
+	double getValue(int i) {
+		long k = first + i;
+		return k == 0 ? 0 : k * step;
+	}
+
+	/**
+	 * @return the cached label of tick i, or null
+	 */
+	String getLabel(int i) {
+		return labels.get(first + i);
+	}
+
+	void putLabel(int i, String label) {
+		labels.put(first + i, label);
+	}
+
+	/**
+	 * the label format changed
+	 */
+	void clearLabels() {
+		labels.clear();
+	}
+
+	/**
+	 * @return the smallest 1, 2 or 5 * 10^k >= range / intervals. NaN if the range is empty.
+	 */
+	static double niceStep(double range, int intervals) {
+		if (!(range > 0) || Double.isInfinite(range)) {
+			return Double.NaN;
+		}
+		double raw = range / intervals;
+		double magnitude = Math.pow(10, Math.floor(Math.log10(raw)));
+		double normalized = raw / magnitude;
+		double nice;
+		if (normalized <= 1) {
+			nice = 1;
+		} else if (normalized <= 2) {
+			nice = 2;
+		} else if (normalized <= 5) {
+			nice = 5;
+		} else {
+			nice = 10;
+		}
+		return nice * magnitude;
+	}
+}
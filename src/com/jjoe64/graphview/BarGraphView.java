@@ -21,15 +21,120 @@ package com.jjoe64.graphview;
 
 import android.content.Context;
 import android.graphics.Canvas;
+import android.graphics.Paint;
 import android.util.AttributeSet;
 
 import com.jjoe64.graphview.GraphViewSeries.GraphViewSeriesStyle;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Draws a Bar Chart
  * @author Muhammad Shahab Hameed
  */
 public class BarGraphView extends GraphView {
+	/**
+	 * how bars are merged if there are more bars than pixels
+	 */
+	public enum Aggregation {
+		/**
+		 * draw every bar
+		 */
+		NONE,
+		/**
+		 * the largest value of the merged bars
+		 */
+		MAX,
+		/**
+		 * the sum of the merged bars
+		 */
+		SUM,
+		/**
+		 * the mean of the merged bars
+		 */
+		MEAN
+	}
+
+	/**
+	 * data point for the ValueDependentColor if the store has no data objects.
+	 * It is reused for every bar, so drawing doesn't allocate.
+	 */
+	static private final class BarData implements GraphViewDataInterface {
+		double x;
+		double y;
+
+		@Override
+		public double getX() {
+			return x;
+		}
+
+		@Override
+		public double getY() {
+			return y;
+		}
+	}
+
+	/**
+	 * resolved colors of the bars of a series.
+	 * They cover the visible bars and as many on each side. Appended data is
+	 * resolved when it gets visible, removed data is forgotten, all colors are
+	 * resolved again only if the data changes otherwise or the viewport leaves that range.
+	 */
+	static private final class BarColors {
+		GraphViewDataStore store;
+		int changeCount;
+		ValueDependentColor valueDependentColor;
+		/**
+		 * covered range, as index in the store + removed count of the store,
+		 * so it stays the same while data is appended and removed
+		 */
+		long start;
+		long end;
+		/**
+		 * color bucket of every bar, index 0 is bar start
+		 */
+		int[] buckets = new int[0];
+		int[] colors = new int[0];
+		/**
+		 * number of bars of every color
+		 */
+		int[] counts = new int[0];
+		int count;
+	}
+
+	/**
+	 * the merged bars of a series. The buckets begin at multiples of the step,
+	 * counted from the first data point ever appended, so scrolling and
+	 * appending don't regroup the bars. Merged again only if the data,
+	 * the visible buckets or the step change.
+	 */
+	static private final class Aggregate {
+		final PrimitiveDataStore bars = new PrimitiveDataStore();
+		final GraphViewDataWindow window = new GraphViewDataWindow();
+		final BarColors colors = new BarColors();
+		GraphViewDataStore store;
+		int version;
+		Aggregation aggregation;
+		int step;
+		/**
+		 * merged range, as index in the store + removed count of the store
+		 */
+		long first;
+		long end;
+	}
+
+	private final BarData barData = new BarData();
+	private final List<Aggregate> aggregates = new ArrayList<Aggregate>();
+	private final List<BarColors> barColors = new ArrayList<BarColors>();
+	/**
+	 * geometry of the bars of every color, as vertical lines (x, top, x, bottom)
+	 */
+	private float[][] lines = new float[1][];
+	private int[] lineCounts = new int[1];
+	private Aggregation aggregation = Aggregation.NONE;
+
 	public BarGraphView(Context context, AttributeSet attrs) {
 		super(context, attrs);
 	}
@@ -42,23 +147,315 @@ public class BarGraphView extends GraphView {
 	public void drawSeries(Canvas canvas, GraphViewDataInterface[] values, float graphwidth, float graphheight,
 			float border, double minX, double minY, double diffX, double diffY,
 			float horstart, GraphViewSeriesStyle style, int[] colors) {
-		float colwidth = (graphwidth - (2 * border)) / values.length;
+		drawSeries(canvas, new GraphViewDataWindow(new ObjectDataStore(values), 0, values.length), graphwidth, graphheight, border, minX, minY, diffX, diffY, horstart, style, colors);
+	}
 
-		paint.setStrokeWidth(style.thickness);
-		paint.setColor(style.color);
+	/**
+	 * the bars are gathered by color and every color is drawn with one call,
+	 * as vertical lines with the width of a bar.
+	 */
+	@Override
+	public void drawSeries(Canvas canvas, GraphViewDataWindow values, float graphwidth, float graphheight,
+			float border, double minX, double minY, double diffX, double diffY,
+			float horstart, GraphViewSeriesStyle style, int[] colors) {
+		float colwidth = (graphwidth - (2 * border)) / values.size();
+		float left = horstart;
+		Aggregate aggregate = getAggregate(values, graphwidth);
+		if (aggregate != null) {
+			// one bar per bucket, the first bucket can begin before the window
+			left += (aggregate.first - values.getStore().getRemovedCount() - values.getStart()) * colwidth;
+			colwidth *= aggregate.step;
+			values = aggregate.window.set(aggregate.bars, 0, aggregate.bars.size());
+		}
+		int size = values.size();
 
-		// draw data
-		for (int i = 0; i < values.length; i++) {
-			float valY = (float) (values[i].getY() - minY);
+		// hook for value dependent color
+		BarColors resolved = null;
+		int offset = 0;
+		if (style.getValueDependentColor() != null) {
+			if (aggregate != null) {
+				resolved = aggregate.colors;
+				if (resolved.store != aggregate.bars || resolved.changeCount != aggregate.bars.getChangeCount()
+						|| resolved.valueDependentColor != style.getValueDependentColor()) {
+					resetColors(resolved, aggregate.bars, aggregate.bars.getRemovedCount(), style.getValueDependentColor());
+					resolveColors(resolved, resolved.start + aggregate.bars.size());
+				}
+			} else {
+				resolved = getBarColors(values, style.getValueDependentColor());
+			}
+			offset = (int) (values.getStore().getRemovedCount() + values.getStart() - resolved.start);
+			prepareLines(resolved.count, resolved.counts);
+		} else {
+			prepareLines(1, null);
+			if (lines[0] == null || lines[0].length < 4 * size) {
+				lines[0] = new float[4 * size];
+			}
+		}
+
+		// gather the bars
+		float bottom = graphheight + border - 1;
+		float center = (colwidth - 1) / 2;
+		for (int i = 0; i < size; i++) {
+			float valY = (float) (values.getY(i) - minY);
 			float ratY = (float) (valY / diffY);
 			float y = graphheight * ratY;
 
-			// hook for value dependent color
-			if (style.getValueDependentColor() != null) {
-				paint.setColor(style.getValueDependentColor().get(values[i]));
+			int bucket = resolved == null ? 0 : resolved.buckets[offset + i];
+			float[] bucketLines = lines[bucket];
+			int n = lineCounts[bucket];
+			bucketLines[n] = bucketLines[n + 2] = (i * colwidth) + left + center;
+			bucketLines[n + 1] = (border - y) + graphheight;
+			bucketLines[n + 3] = bottom;
+			lineCounts[bucket] = n + 4;
+		}
+
+		// draw data
+		Paint.Cap cap = paint.getStrokeCap();
+		paint.setStrokeCap(Paint.Cap.BUTT);
+		paint.setStrokeWidth(Math.max(colwidth - 1, 1));
+		int buckets = resolved == null ? 1 : resolved.count;
+		for (int bucket = 0; bucket < buckets; bucket++) {
+			if (lineCounts[bucket] > 0) {
+				paint.setColor(resolved == null ? style.color : resolved.colors[bucket]);
+				canvas.drawLines(lines[bucket], 0, lineCounts[bucket], paint);
+			}
+		}
+		paint.setStrokeCap(cap);
+		paint.setStrokeWidth(style.thickness);
+	}
+
+	/**
+	 * with aggregation the y axis fits the merged bars
+	 */
+	@Override
+	protected double getMaxY(GraphViewDataWindow values) {
+		Aggregate aggregate = getAggregate(values, getGraphWidth());
+		return aggregate == null ? super.getMaxY(values) : aggregate.bars.getMaxY();
+	}
+
+	@Override
+	protected double getMinY(GraphViewDataWindow values) {
+		Aggregate aggregate = getAggregate(values, getGraphWidth());
+		return aggregate == null ? super.getMinY(values) : aggregate.bars.getMinY();
+	}
+
+	/**
+	 * @return the merged bars of the window, null if there are not more bars than pixels
+	 */
+	private Aggregate getAggregate(GraphViewDataWindow values, float graphwidth) {
+		int width = Math.max((int) graphwidth, 1);
+		int size = values.size();
+		if (aggregation == Aggregation.NONE || size <= width) {
+			return null;
+		}
+		int index = Math.max(values.seriesIndex, 0);
+		while (aggregates.size() <= index) {
+			aggregates.add(null);
+		}
+		Aggregate aggregate = aggregates.get(index);
+		if (aggregate == null) {
+			aggregate = new Aggregate();
+			aggregates.set(index, aggregate);
+		}
+		GraphViewDataStore store = values.getStore();
+		synchronized (store) {
+			long removed = store.getRemovedCount();
+			int step = (size + width - 1) / width;
+			long first = (removed + values.getStart()) / step * step;
+			long end = Math.min((removed + values.getEnd() + step - 1) / step * step, removed + store.size());
+			if (aggregate.store != store || aggregate.version != store.getVersion()
+					|| aggregate.aggregation != aggregation || aggregate.step != step
+					|| aggregate.first != first || aggregate.end != end) {
+				merge(store, removed, first, end, step, aggregate.bars);
+				aggregate.store = store;
+				aggregate.version = store.getVersion();
+				aggregate.aggregation = aggregation;
+				aggregate.step = step;
+				aggregate.first = first;
+				aggregate.end = end;
+			}
+		}
+		return aggregate;
+	}
+
+	/**
+	 * merges the bars in buckets of step bars
+	 * @param first begin of the first bucket, index in the store + removed
+	 * @param end end of the last bucket, index in the store + removed
+	 * @param out the merged bars, x is the x of the first merged bar
+	 */
+	private void merge(GraphViewDataStore store, long removed, long first, long end, int step, PrimitiveDataStore out) {
+		out.clear();
+		for (long bucket = first; bucket < end; bucket += step) {
+			// the first bucket can begin before the oldest data
+			int start = (int) (Math.max(bucket, removed) - removed);
+			int stop = (int) (Math.min(bucket + step, end) - removed);
+			double y = store.getY(start);
+			for (int i = start + 1; i < stop; i++) {
+				if (aggregation == Aggregation.MAX) {
+					y = Math.max(y, store.getY(i));
+				} else {
+					y += store.getY(i);
+				}
+			}
+			if (aggregation == Aggregation.MEAN) {
+				y /= stop - start;
+			}
+			out.append(store.getX(start), y);
+		}
+	}
+
+	public Aggregation getAggregation() {
+		return aggregation;
+	}
+
+	/**
+	 * merge adjacent bars to one bar per pixel, if there are more bars than pixels.
+	 * Then at most one bar per pixel is drawn and the y axis fits the merged bars.
+	 * @param aggregation how the bars are merged, default is NONE
+	 */
+	public void setAggregation(Aggregation aggregation) {
+		this.aggregation = aggregation;
+	}
+
+	/**
+	 * @param counts max number of bars of every color, null for the caller to size them
+	 */
+	private void prepareLines(int buckets, int[] counts) {
+		if (lines.length < buckets) {
+			lines = Arrays.copyOf(lines, buckets);
+			lineCounts = new int[buckets];
+		}
+		for (int bucket = 0; bucket < buckets; bucket++) {
+			lineCounts[bucket] = 0;
+			if (counts != null && (lines[bucket] == null || lines[bucket].length < 4 * counts[bucket])) {
+				lines[bucket] = new float[4 * counts[bucket]];
 			}
+		}
+	}
 
-			canvas.drawRect((i * colwidth) + horstart, (border - y) + graphheight, ((i * colwidth) + horstart) + (colwidth - 1), graphheight + border - 1, paint);
+	@Override
+	protected void onSeriesRemoved(int index) {
+		if (index < barColors.size()) {
+			barColors.remove(index);
+		}
+		if (index < aggregates.size()) {
+			aggregates.remove(index);
+		}
+	}
+
+	@Override
+	protected void onSeriesDataReset(int index) {
+		if (index < barColors.size()) {
+			barColors.set(index, null);
+		}
+		if (index < aggregates.size()) {
+			aggregates.set(index, null);
+		}
+	}
+
+	/**
+	 * @return the colors of the bars, only the bars that are new or were not covered are resolved
+	 */
+	private BarColors getBarColors(GraphViewDataWindow values, ValueDependentColor valueDependentColor) {
+		int index = Math.max(values.seriesIndex, 0);
+		while (barColors.size() <= index) {
+			barColors.add(null);
+		}
+		BarColors resolved = barColors.get(index);
+		if (resolved == null) {
+			resolved = new BarColors();
+			barColors.set(index, resolved);
+		}
+		GraphViewDataStore store = values.getStore();
+		synchronized (store) {
+			long removed = store.getRemovedCount();
+			long start = removed + values.getStart();
+			long end = removed + values.getEnd();
+			int size = values.size();
+			if (resolved.store != store || resolved.changeCount != store.getChangeCount()
+					|| resolved.valueDependentColor != valueDependentColor
+					|| start < resolved.start || start > resolved.end) {
+				resetColors(resolved, store, Math.max(start - size, removed), valueDependentColor);
+			} else if (end <= resolved.end) {
+				return resolved;
+			} else if (start - resolved.start > 2 * size) {
+				// forget the bars far behind the viewport
+				dropColors(resolved, (int) (start - size - resolved.start));
+			}
+			resolveColors(resolved, Math.min(end + size, removed + store.size()));
+		}
+		return resolved;
+	}
+
+	/**
+	 * forgets all colors, the covered range is empty and begins at start
+	 */
+	static private void resetColors(BarColors resolved, GraphViewDataStore store, long start, ValueDependentColor valueDependentColor) {
+		resolved.store = store;
+		resolved.changeCount = store.getChangeCount();
+		resolved.valueDependentColor = valueDependentColor;
+		resolved.start = start;
+		resolved.end = start;
+		resolved.count = 0;
+	}
+
+	/**
+	 * forgets the colors of the first bars of the covered range
+	 */
+	static private void dropColors(BarColors resolved, int count) {
+		int length = (int) (resolved.end - resolved.start);
+		for (int i = 0; i < count; i++) {
+			resolved.counts[resolved.buckets[i]]--;
+		}
+		System.arraycopy(resolved.buckets, count, resolved.buckets, 0, length - count);
+		resolved.start += count;
+	}
+
+	/**
+	 * resolves the colors of the bars after the covered range, until end
+	 */
+	private void resolveColors(BarColors resolved, long end) {
+		GraphViewDataStore store = resolved.store;
+		long removed = store.getRemovedCount();
+		int length = (int) (end - resolved.start);
+		if (resolved.buckets.length < length) {
+			resolved.buckets = Arrays.copyOf(resolved.buckets, Math.max(length, resolved.buckets.length * 3 / 2));
+		}
+		boolean dataObjects = store instanceof ObjectDataStore;
+		for (long i = resolved.end; i < end; i++) {
+			int index = (int) (i - removed);
+			GraphViewDataInterface item;
+			if (dataObjects) {
+				item = store.getDataItem(index);
+			} else {
+				barData.x = store.getX(index);
+				barData.y = store.getY(index);
+				item = barData;
+			}
+			int bucket = bucketOf(resolved, resolved.valueDependentColor.get(item));
+			resolved.buckets[(int) (i - resolved.start)] = bucket;
+			resolved.counts[bucket]++;
+		}
+		resolved.end = Math.max(end, resolved.end);
+	}
+
+	/**
+	 * a chart has only a few colors, a linear search is fast enough and doesn't allocate
+	 * @return the bucket of the color, a new one if the color is new
+	 */
+	static private int bucketOf(BarColors resolved, int color) {
+		for (int bucket = 0; bucket < resolved.count; bucket++) {
+			if (resolved.colors[bucket] == color) {
+				return bucket;
+			}
+		}
+		if (resolved.colors.length == resolved.count) {
+			resolved.colors = Arrays.copyOf(resolved.colors, Math.max(2 * resolved.count, 4));
+			resolved.counts = Arrays.copyOf(resolved.counts, resolved.colors.length);
 		}
+		resolved.colors[resolved.count] = color;
+		resolved.counts[resolved.count] = 0;
+		return resolved.count++;
 	}
 }
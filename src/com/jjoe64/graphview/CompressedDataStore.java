@@ -0,0 +1,482 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+package com.jjoe64.graphview;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import android.os.Looper;
+
+/**
+ * compressed data store for long realtime histories.
+ * The data is stored in blocks of 1024 data points, encoded like
+ * Gorilla time series: the x values as delta-of-delta of their bits,
+ * the y values as XOR with the previous value. Regularly spaced x values
+ * and slowly changing y values need only a few bits per data point.
+ * The newest block is kept uncompressed until it is full.
+ * Blocks are decoded when they are accessed, the UI thread caches the last decoded blocks.
+ * Other threads, for example {@link GraphViewSeriesSnapshot#write}, decode into a buffer of
+ * their own and don't change the cache, they have to hold the lock of the store.
+ * The block headers hold first/last x and min/max y, so binary search
+ * and y bounds decode at most the blocks at the ends of a range.
+ */
+public class CompressedDataStore extends GraphViewDataStore {
+	static private final int BLOCK_SHIFT = 10;
+	static private final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+	static private final int BLOCK_MASK = BLOCK_SIZE - 1;
+	static private final int CACHE_SIZE = 8;
+
+	/**
+	 * one compressed block of BLOCK_SIZE data points
+	 */
+	static private class Block {
+		final double firstX;
+		final double lastX;
+		final double minY;
+		final double maxY;
+		final long[] words;
+
+		Block(double[] xs, double[] ys) {
+			BitWriter out = new BitWriter();
+			long prevX = Double.doubleToRawLongBits(xs[0]);
+			long prevY = Double.doubleToRawLongBits(ys[0]);
+			out.write(prevX, 64);
+			out.write(prevY, 64);
+			long prevDelta = 0;
+			int prevLeading = -1;
+			int prevTrailing = 0;
+			double min = Double.isNaN(ys[0]) ? Double.POSITIVE_INFINITY : ys[0];
+			double max = Double.isNaN(ys[0]) ? Double.NEGATIVE_INFINITY : ys[0];
+			for (int i = 1; i < BLOCK_SIZE; i++) {
+				// x: delta-of-delta
+				long x = Double.doubleToRawLongBits(xs[i]);
+				long delta = x - prevX;
+				long dod = delta - prevDelta;
+				if (dod == 0) {
+					out.write(0, 1);
+				} else if (dod >= -64 && dod <= 63) {
+					out.write(0x2, 2);
+					out.write(dod, 7);
+				} else if (dod >= -256 && dod <= 255) {
+					out.write(0x6, 3);
+					out.write(dod, 9);
+				} else if (dod >= -2048 && dod <= 2047) {
+					out.write(0xE, 4);
+					out.write(dod, 12);
+				} else {
+					out.write(0xF, 4);
+					out.write(dod, 64);
+				}
+				prevX = x;
+				prevDelta = delta;
+
+				// y: xor with the previous value
+				long y = Double.doubleToRawLongBits(ys[i]);
+				long xor = y ^ prevY;
+				if (xor == 0) {
+					out.write(0, 1);
+				} else {
+					int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+					int trailing = Long.numberOfTrailingZeros(xor);
+					if (prevLeading != -1 && leading >= prevLeading && trailing >= prevTrailing) {
+						// fits into the window of the previous value
+						out.write(0x2, 2);
+						out.write(xor >>> prevTrailing, 64 - prevLeading - prevTrailing);
+					} else {
+						int meaningful = 64 - leading - trailing;
+						out.write(0x3, 2);
+						out.write(leading, 5);
+						out.write(meaningful - 1, 6);
+						out.write(xor >>> trailing, meaningful);
+						prevLeading = leading;
+						prevTrailing = trailing;
+					}
+				}
+				prevY = y;
+				if (ys[i] < min) min = ys[i];
+				if (ys[i] > max) max = ys[i];
+			}
+			firstX = xs[0];
+			lastX = xs[BLOCK_SIZE - 1];
+			minY = min;
+			maxY = max;
+			words = out.toArray();
+		}
+
+		void decode(double[] xs, double[] ys) {
+			BitReader in = new BitReader(words);
+			long prevX = in.read(64);
+			long prevY = in.read(64);
+			xs[0] = Double.longBitsToDouble(prevX);
+			ys[0] = Double.longBitsToDouble(prevY);
+			long prevDelta = 0;
+			int prevLeading = 0;
+			int prevTrailing = 0;
+			for (int i = 1; i < BLOCK_SIZE; i++) {
+				long dod;
+				if (in.read(1) == 0) {
+					dod = 0;
+				} else if (in.read(1) == 0) {
+					dod = in.readSigned(7);
+				} else if (in.read(1) == 0) {
+					dod = in.readSigned(9);
+				} else if (in.read(1) == 0) {
+					dod = in.readSigned(12);
+				} else {
+					dod = in.read(64);
+				}
+				prevDelta += dod;
+				prevX += prevDelta;
+				xs[i] = Double.longBitsToDouble(prevX);
+
+				if (in.read(1) != 0) {
+					long xor;
+					if (in.read(1) == 0) {
+						xor = in.read(64 - prevLeading - prevTrailing) << prevTrailing;
+					} else {
+						int leading = (int) in.read(5);
+						int meaningful = (int) in.read(6) + 1;
+						prevTrailing = 64 - leading - meaningful;
+						prevLeading = leading;
+						xor = in.read(meaningful) << prevTrailing;
+					}
+					prevY ^= xor;
+				}
+				ys[i] = Double.longBitsToDouble(prevY);
+			}
+		}
+	}
+
+	/**
+	 * a decoded block
+	 */
+	static private class Decoded {
+		final double[] xs = new double[BLOCK_SIZE];
+		final double[] ys = new double[BLOCK_SIZE];
+		Block block;
+		long use;
+	}
+
+	/**
+	 * appends bits, most significant first
+	 */
+	static private class BitWriter {
+		private long[] words = new long[32];
+		private int length;
+
+		/**
+		 * @param value the lowest 'bits' bits are written
+		 */
+		void write(long value, int bits) {
+			int word = length >>> 6;
+			if (word + 1 >= words.length) {
+				words = Arrays.copyOf(words, words.length * 2);
+			}
+			int free = 64 - (length & 63);
+			if (bits <= free) {
+				words[word] |= (value & mask(bits)) << (free - bits);
+			} else {
+				int rest = bits - free;
+				words[word] |= (value >>> rest) & mask(free);
+				words[word + 1] |= (value & mask(rest)) << (64 - rest);
+			}
+			length += bits;
+		}
+
+		long[] toArray() {
+			// one word more, so the reader never reads past the end
+			return Arrays.copyOf(words, (length >>> 6) + 2);
+		}
+	}
+
+	static private class BitReader {
+		private final long[] words;
+		private int position;
+
+		BitReader(long[] words) {
+			this.words = words;
+		}
+
+		long read(int bits) {
+			int word = position >>> 6;
+			int free = 64 - (position & 63);
+			long result;
+			if (bits <= free) {
+				result = (words[word] >>> (free - bits)) & mask(bits);
+			} else {
+				int rest = bits - free;
+				result = ((words[word] & mask(free)) << rest) | (words[word + 1] >>> (64 - rest));
+			}
+			position += bits;
+			return result;
+		}
+
+		long readSigned(int bits) {
+			return (read(bits) << (64 - bits)) >> (64 - bits);
+		}
+	}
+
+	static private long mask(int bits) {
+		return bits == 64 ? -1L : (1L << bits) - 1;
+	}
+
+	private final List<Block> blocks = new ArrayList<Block>();
+	/**
+	 * the newest data, not compressed yet
+	 */
+	private final double[] tailX = new double[BLOCK_SIZE];
+	private final double[] tailY = new double[BLOCK_SIZE];
+	private int tailCount;
+	/**
+	 * removed data points of the first block
+	 */
+	private int skip;
+	private int size;
+
+	/**
+	 * last decoded blocks of the UI thread
+	 */
+	private final Decoded[] cache = new Decoded[CACHE_SIZE];
+	private long cacheClock;
+	private Decoded lastHit;
+	/**
+	 * the block decoded by another thread
+	 */
+	private final ThreadLocal<Decoded> otherThreadBlock = new ThreadLocal<Decoded>() {
+		@Override
+		protected Decoded initialValue() {
+			return new Decoded();
+		}
+	};
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return number of compressed blocks
+	 */
+	public int getBlockCount() {
+		return blocks.size();
+	}
+
+	/**
+	 * @return approximate memory of the data in bytes
+	 */
+	public long getMemoryUsage() {
+		long bytes = 2L * 8 * BLOCK_SIZE;
+		for (int i = 0; i < blocks.size(); i++) {
+			bytes += 8L * blocks.get(i).words.length + 32;
+		}
+		return bytes;
+	}
+
+	@Override
+	public double getX(int index) {
+		int i = index + skip;
+		int b = i >>> BLOCK_SHIFT;
+		if (b < blocks.size()) {
+			return decode(b).xs[i & BLOCK_MASK];
+		}
+		return tailX[i - (blocks.size() << BLOCK_SHIFT)];
+	}
+
+	@Override
+	public double getY(int index) {
+		int i = index + skip;
+		int b = i >>> BLOCK_SHIFT;
+		if (b < blocks.size()) {
+			return decode(b).ys[i & BLOCK_MASK];
+		}
+		return tailY[i - (blocks.size() << BLOCK_SHIFT)];
+	}
+
+	@Override
+	public boolean isReadOnly() {
+		return false;
+	}
+
+	@Override
+	public void append(double x, double y) {
+		tailX[tailCount] = x;
+		tailY[tailCount] = y;
+		tailCount++;
+		size++;
+		if (tailCount == BLOCK_SIZE) {
+			blocks.add(new Block(tailX, tailY));
+			tailCount = 0;
+		}
+		onDataAppended(y);
+	}
+
+	@Override
+	public void removeFirst(int count) {
+		count = Math.min(count, size);
+		skip += count;
+		while (!blocks.isEmpty() && skip >= BLOCK_SIZE) {
+			uncache(blocks.remove(0));
+			skip -= BLOCK_SIZE;
+		}
+		if (blocks.isEmpty() && skip > 0) {
+			System.arraycopy(tailX, skip, tailX, 0, tailCount - skip);
+			System.arraycopy(tailY, skip, tailY, 0, tailCount - skip);
+			tailCount -= skip;
+			skip = 0;
+		}
+		size -= count;
+		onDataRemoved(count);
+	}
+
+	@Override
+	public int ceilingIndex(double value) {
+		return search(value, true);
+	}
+
+	@Override
+	public int higherIndex(double value) {
+		return search(value, false);
+	}
+
+	@Override
+	public double getMinY(int start, int end) {
+		return extreme(start, end, false);
+	}
+
+	@Override
+	public double getMaxY(int start, int end) {
+		return extreme(start, end, true);
+	}
+
+	/**
+	 * binary search over the block headers, then in one block
+	 * @param inclusive true: first x >= value, false: first x > value
+	 */
+	private int search(double value, boolean inclusive) {
+		int low = 0;
+		int high = blocks.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			double lastX = blocks.get(mid).lastX;
+			if (inclusive ? lastX < value : lastX <= value) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		int from;
+		int to;
+		double[] xs;
+		if (low < blocks.size()) {
+			xs = decode(low).xs;
+			from = low == 0 ? skip : 0;
+			to = BLOCK_SIZE;
+		} else {
+			xs = tailX;
+			from = blocks.isEmpty() ? skip : 0;
+			to = tailCount;
+		}
+		while (from < to) {
+			int mid = (from + to) >>> 1;
+			if (inclusive ? xs[mid] < value : xs[mid] <= value) {
+				from = mid + 1;
+			} else {
+				to = mid;
+			}
+		}
+		return (low << BLOCK_SHIFT) + from - skip;
+	}
+
+	/**
+	 * whole blocks use the header, only the blocks at the ends are decoded
+	 */
+	private double extreme(int start, int end, boolean largest) {
+		double result = largest ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+		int i = start + skip;
+		int last = end + skip;
+		while (i < last) {
+			int b = i >>> BLOCK_SHIFT;
+			int blockStart = b << BLOCK_SHIFT;
+			int blockEnd = Math.min(blockStart + BLOCK_SIZE, last);
+			double value;
+			if (b < blocks.size() && i == blockStart && blockEnd == blockStart + BLOCK_SIZE) {
+				value = largest ? blocks.get(b).maxY : blocks.get(b).minY;
+			} else {
+				value = largest ? super.getMaxY(i - skip, blockEnd - skip) : super.getMinY(i - skip, blockEnd - skip);
+			}
+			result = largest ? Math.max(result, value) : Math.min(result, value);
+			i = blockEnd;
+		}
+		return result;
+	}
+
+	/**
+	 * @return the decoded block
+	 */
+	private Decoded decode(int b) {
+		Block block = blocks.get(b);
+		if (Thread.currentThread() != Looper.getMainLooper().getThread()) {
+			Decoded decoded = otherThreadBlock.get();
+			if (decoded.block != block) {
+				block.decode(decoded.xs, decoded.ys);
+				decoded.block = block;
+			}
+			return decoded;
+		}
+		if (lastHit != null && lastHit.block == block) {
+			return lastHit;
+		}
+		int entry = 0;
+		for (int i = 0; i < CACHE_SIZE; i++) {
+			if (cache[i] == null) {
+				// not cached, decode into a new entry
+				cache[i] = new Decoded();
+				entry = i;
+				break;
+			}
+			if (cache[i].block == block) {
+				entry = i;
+				break;
+			}
+			if (cache[i].use < cache[entry].use) {
+				entry = i;
+			}
+		}
+		Decoded decoded = cache[entry];
+		if (decoded.block != block) {
+			// not cached, decode into the least recently used entry
+			block.decode(decoded.xs, decoded.ys);
+			decoded.block = block;
+		}
+		decoded.use = ++cacheClock;
+		lastHit = decoded;
+		return decoded;
+	}
+
+	private void uncache(Block block) {
+		for (int i = 0; i < CACHE_SIZE; i++) {
+			if (cache[i] != null && cache[i].block == block) {
+				cache[i].block = null;
+				cache[i].use = 0;
+			}
+		}
+	}
+}
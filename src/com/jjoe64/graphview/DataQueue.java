@@ -0,0 +1,129 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+package com.jjoe64.graphview;
+
+/**
+ * bounded lock-free queue of x/y values for exactly one producer
+ * and one consumer thread.
+ * The producer writes the values and then publishes them with the
+ * volatile tail, the consumer releases the slots with the volatile head.
+ * No thread ever waits for the other.
+ */
+class DataQueue {
+	private final double[] xs;
+	private final double[] ys;
+	private final int mask;
+	/**
+	 * next slot to read, written by the consumer
+	 */
+	private volatile long head;
+	/**
+	 * next slot to write, written by the producer
+	 */
+	private volatile long tail;
+	/**
+	 * last head seen by the producer, avoids reading the volatile on every offer
+	 */
+	private long producerHead;
+
+	/**
+	 * @param capacity rounded up to a power of 2
+	 */
+	DataQueue(int capacity) {
+		int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+		xs = new double[size];
+		ys = new double[size];
+		mask = size - 1;
+	}
+
+	/**
+	 * producer thread only
+	 * @return false if the queue is full
+	 */
+	boolean offer(double x, double y) {
+		long t = tail;
+		if (t - producerHead == xs.length) {
+			producerHead = head;
+			if (t - producerHead == xs.length) {
+				return false;
+			}
+		}
+		int i = (int) t & mask;
+		xs[i] = x;
+		ys[i] = y;
+		tail = t + 1;
+		return true;
+	}
+
+	/**
+	 * consumer thread only
+	 */
+	boolean isEmpty() {
+		return head == tail;
+	}
+
+	/**
+	 * consumer thread only
+	 * @return x of the oldest value, queue must not be empty
+	 */
+	double peekX() {
+		return xs[(int) head & mask];
+	}
+
+	/**
+	 * consumer thread only
+	 * @return y of the oldest value, queue must not be empty
+	 */
+	double peekY() {
+		return ys[(int) head & mask];
+	}
+
+	/**
+	 * consumer thread only. The producer doesn't overwrite the slot
+	 * before the consumer has taken it.
+	 * @return x of the newest value, queue must not be empty
+	 */
+	double peekLastX() {
+		return xs[(int) (tail - 1) & mask];
+	}
+
+	/**
+	 * consumer thread only, removes the oldest value
+	 */
+	void skip() {
+		head = head + 1;
+	}
+
+	/**
+	 * consumer thread only, moves the oldest values to the arrays
+	 * @return number of values
+	 */
+	int drain(double[] outX, double[] outY, int max) {
+		long h = head;
+		int count = (int) Math.min(tail - h, max);
+		for (int j = 0; j < count; j++) {
+			int i = (int) (h + j) & mask;
+			outX[j] = xs[i];
+			outY[j] = ys[i];
+		}
+		head = h + count;
+		return count;
+	}
+}
@@ -0,0 +1,145 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+package com.jjoe64.graphview;
+
+/**
+ * reduces the number of data points before drawing.
+ */
+final class Downsampler {
+	private Downsampler() {
+	}
+
+	/**
+	 * Largest-Triangle-Three-Buckets.
+	 * Keeps the first and last point and from every bucket between the
+	 * point that forms the largest triangle with the previous chosen
+	 * point and the average of the next bucket.
+	 * The area is compared in data space, scaling x and y doesn't change the chosen point.
+	 * @param values input, sorted by x
+	 * @param target number of output points, >= 3
+	 * @param out cleared and filled with the result
+	 */
+	static void lttb(GraphViewDataStore values, int target, PrimitiveDataStore out) {
+		out.clear();
+		int size = values.size();
+		if (target >= size || target < 3) {
+			for (int i = 0; i < size; i++) {
+				out.append(values.getX(i), values.getY(i));
+			}
+			return;
+		}
+
+		double every = (double) (size - 2) / (target - 2);
+		int a = 0;
+		out.append(values.getX(0), values.getY(0));
+		for (int i = 0; i < target - 2; i++) {
+			// average of the next bucket
+			int avgStart = (int) ((i + 1) * every) + 1;
+			int avgEnd = Math.min((int) ((i + 2) * every) + 1, size);
+			double avgX = 0;
+			double avgY = 0;
+			for (int j = avgStart; j < avgEnd; j++) {
+				avgX += values.getX(j);
+				avgY += values.getY(j);
+			}
+			avgX /= avgEnd - avgStart;
+			avgY /= avgEnd - avgStart;
+
+			// point of this bucket with the largest triangle
+			int rangeStart = (int) (i * every) + 1;
+			int rangeEnd = (int) ((i + 1) * every) + 1;
+			double ax = values.getX(a);
+			double ay = values.getY(a);
+			double maxArea = -1;
+			int next = rangeStart;
+			for (int j = rangeStart; j < rangeEnd; j++) {
+				double area = Math.abs((ax - avgX) * (values.getY(j) - ay) - (ax - values.getX(j)) * (avgY - ay));
+				if (area > maxArea) {
+					maxArea = area;
+					next = j;
+				}
+			}
+			out.append(values.getX(next), values.getY(next));
+			a = next;
+		}
+		out.append(values.getX(size - 1), values.getY(size - 1));
+	}
+
+	/**
+	 * M4 aggregation: keeps the first, last, min and max point of every pixel column,
+	 * in the original order. Drawn as line, the result covers the same pixels as
+	 * all data points, but has at most 4 points per column.
+	 * @param values input, sorted by x
+	 * @param minX x value at the left border
+	 * @param diffX x range of the graph
+	 * @param graphwidth width in pixels
+	 * @param out cleared and filled with the result
+	 */
+	static void m4(GraphViewDataStore values, double minX, double diffX, float graphwidth, PrimitiveDataStore out) {
+		out.clear();
+		int size = values.size();
+		if (size == 0) {
+			return;
+		}
+
+		double scale = graphwidth / diffX;
+		long column = (long) Math.floor((values.getX(0) - minX) * scale);
+		int first = 0;
+		int min = 0;
+		int max = 0;
+		for (int i = 1; i < size; i++) {
+			long c = (long) Math.floor((values.getX(i) - minX) * scale);
+			if (c != column) {
+				appendColumn(values, first, min, max, i - 1, out);
+				column = c;
+				first = i;
+				min = i;
+				max = i;
+			} else {
+				double y = values.getY(i);
+				if (y < values.getY(min)) {
+					min = i;
+				}
+				if (y > values.getY(max)) {
+					max = i;
+				}
+			}
+		}
+		appendColumn(values, first, min, max, size - 1, out);
+	}
+
+	/**
+	 * appends the points of one column in index order, without duplicates
+	 */
+	static void appendColumn(GraphViewDataStore values, int first, int min, int max, int last, PrimitiveDataStore out) {
+		out.append(values.getX(first), values.getY(first));
+		int lower = Math.min(min, max);
+		int upper = Math.max(min, max);
+		if (lower != first && lower != last) {
+			out.append(values.getX(lower), values.getY(lower));
+		}
+		if (upper != lower && upper != first && upper != last) {
+			out.append(values.getX(upper), values.getY(upper));
+		}
+		if (last != first) {
+			out.append(values.getX(last), values.getY(last));
+		}
+	}
+}
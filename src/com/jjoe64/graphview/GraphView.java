@@ -19,6 +19,7 @@
 
 package com.jjoe64.graphview;
 
+import android.annotation.TargetApi;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
@@ -27,9 +28,14 @@ import android.graphics.Paint;
 import android.graphics.Paint.Align;
 import android.graphics.Rect;
 import android.graphics.RectF;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.util.DisplayMetrics;
 import android.util.TypedValue;
+import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.view.View;
 import android.widget.RelativeLayout;
@@ -45,7 +51,8 @@ import java.util.List;
 
 /**
  * GraphView is a Android View for creating zoomable and scrollable graphs.
- * This is the abstract base class for all graphs. Extend this class and implement {@link ##drawSeries(Canvas, GraphViewDataInterface[], float, float, float, double, double, double, double, float)} to display a custom graph.
+ * This is the abstract base class for all graphs. Extend this class and implement {@link #drawSeries(Canvas, GraphViewDataInterface[], float, float, float, double, double, double, double, float, GraphViewSeriesStyle, int[])} to display a custom graph.
+ * Override {@link #drawSeries(Canvas, GraphViewDataWindow, float, float, float, double, double, double, double, float, GraphViewSeriesStyle, int[])} too, to draw without copying the data.
  * Use {@link LineGraphView} for creating a line chart.
  *
  * @author jjoe64 - jonas gehring - http://www.jjoe64.com
@@ -77,6 +84,20 @@ abstract public class GraphView extends RelativeLayout {
 			setLayoutParams(new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
 		}
 
+		/**
+		 * @return width of the graph, without the labels and images
+		 */
+		float measureGraphWidth() {
+			float width = getWidth() - (viewVerLabels.getLayoutParams().width +
+					((LayoutParams)viewVerLabels.getLayoutParams()).leftMargin +
+					((LayoutParams)viewVerLabels.getLayoutParams()).rightMargin) - 1;
+
+			width -= showSideImages ? ((viewVerImages.getLayoutParams().width +
+					((LayoutParams)viewVerImages.getLayoutParams()).leftMargin +
+					((LayoutParams)viewVerImages.getLayoutParams()).rightMargin) - 1) : 0;
+			return width;
+		}
+
 		/**
 		 * @param canvas
 		 */
@@ -98,13 +119,7 @@ abstract public class GraphView extends RelativeLayout {
                     ((LayoutParams)viewVerImages.getLayoutParams()).rightMargin) : 0;
 
             float height = getHeight();
-            float width = getWidth() - (viewVerLabels.getLayoutParams().width +
-                    ((LayoutParams)viewVerLabels.getLayoutParams()).leftMargin +
-                    ((LayoutParams)viewVerLabels.getLayoutParams()).rightMargin) - 1;
-
-            width -= showSideImages ? ((viewVerImages.getLayoutParams().width +
-                    ((LayoutParams)viewVerImages.getLayoutParams()).leftMargin +
-                    ((LayoutParams)viewVerImages.getLayoutParams()).rightMargin) - 1) : 0;
+            float width = measureGraphWidth();
 
             double maxY = getMaxY();
             double minY = getMinY();
@@ -113,32 +128,21 @@ abstract public class GraphView extends RelativeLayout {
             double diffX = maxX - minX;
 
              // measure bottom text
-            if (labelTextHeight == null || horLabelTextWidth == null) {
-                paint.setTextSize(getGraphViewStyle().getTextSize());
-                double testX = ((getMaxX(true)-getMinX(true))*0.783)+getMinX(true);
-                String testLabel = formatLabel(testX, true);
-                paint.getTextBounds(testLabel, 0, testLabel.length(), textBounds);
-                labelTextHeight = (textBounds.height());
-                horLabelTextWidth = (textBounds.width());
-            }
+            measureBottomText();
             border += labelTextHeight;
 
             float graphheight = height - (2 * border);
             graphwidth = width;
 
-            if (horlabels == null) {
-                horlabels = generateHorlabels(graphwidth);
-            }
-            if (verlabels == null) {
-                verlabels = generateVerlabels(graphheight);
-            }
+            String[] horlabels = getHorlabels(graphwidth, minX, maxX);
+            String[] verlabels = getVerlabels(graphheight, minY, maxY);
 
             // horizontal lines
             paint.setTextAlign(Align.LEFT);
             int vers = verlabels.length - 1;
             for (int i = 0; i < verlabels.length; i++) {
                 paint.setColor(graphViewStyle.getGridColor());
-                float y = ((graphheight / vers) * i) + border;
+                float y = labelPosition(verlabelPositions, i, vers, graphheight) + border;
                 if ((i != verlabels.length - 1) || getGraphViewStyle().getShowBottomLinesAndLabels()) {
                     canvas.drawLine(horstart, y, width + horstart, y, paint);
                 }
@@ -148,15 +152,17 @@ abstract public class GraphView extends RelativeLayout {
             int hors = horlabels.length - 1;
             for (int i = 0; i < horlabels.length; i++) {
                 paint.setColor(graphViewStyle.getGridColor());
-                float x = ((graphwidth / hors) * i) + horstart;
+                float x = labelPosition(horlabelPositions, i, hors, graphwidth) + horstart;
                 if (showVerticalGridLines) {
                     canvas.drawLine(x, height - border, x, border, paint);
                 }
                 paint.setTextAlign(Align.CENTER);
-                if (i==horlabels.length-1)
-                    paint.setTextAlign(Align.RIGHT);
-                if (i==0)
-                    paint.setTextAlign(Align.LEFT);
+                if (horlabelPositions == null) {
+                    if (i==horlabels.length-1)
+                        paint.setTextAlign(Align.RIGHT);
+                    if (i==0)
+                        paint.setTextAlign(Align.LEFT);
+                }
                 paint.setColor(graphViewStyle.getHorizontalLabelsColor());
 
                 if (getGraphViewStyle().getShowBottomLinesAndLabels()) {
@@ -212,9 +218,7 @@ abstract public class GraphView extends RelativeLayout {
                     viewportStart = viewportStartInit - scrollPaddingLeft;
                 }
 
-				// labels have to be regenerated
-				if (!staticHorizontalLabels) horlabels = null;
-				if (!staticVerticalLabels) verlabels = null;
+				// the labels are regenerated for the new viewport
 				viewVerLabels.invalidate();
 
                 if (viewVerImages != null) {
@@ -296,6 +300,25 @@ abstract public class GraphView extends RelativeLayout {
 		TOP, MIDDLE, BOTTOM
 	}
 
+	/**
+	 * runs the scheduled redraw at the next display frame
+	 */
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private class FrameRedraw implements Choreographer.FrameCallback {
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			onRedrawFrame();
+		}
+
+		void post(long delay) {
+			Choreographer.getInstance().postFrameCallbackDelayed(this, delay);
+		}
+
+		void cancel() {
+			Choreographer.getInstance().removeFrameCallback(this);
+		}
+	}
+
     private class VerImagesView extends View {
 
         public VerImagesView(Context context) {
@@ -398,9 +421,7 @@ abstract public class GraphView extends RelativeLayout {
 			float height = getHeight();
 			float graphheight = height - (2 * border);
 
-			if (verlabels == null) {
-				verlabels = generateVerlabels(graphheight);
-			}
+			String[] verlabels = getVerlabels(graphheight, getMinY(), getMaxY());
 
             if (verLabelTextWidth == null) {
                 int testWidth = 0;
@@ -431,7 +452,7 @@ abstract public class GraphView extends RelativeLayout {
 			paint.setTextAlign(Align.LEFT);
 			int vers = verlabels.length - 1;
 			for (int i = 0; i < verlabels.length; i++) {
-				float y = ((graphheight / vers) * i) + border;
+				float y = labelPosition(verlabelPositions, i, vers, graphheight) + border;
 				paint.setColor(graphViewStyle.getVerticalLabelsColor());
                 if ((i < verlabels.length - 1 && !getGraphViewStyle().getShowBottomLinesAndLabels()) || getGraphViewStyle().getShowBottomLinesAndLabels()) {
 				    canvas.drawText(verlabels[i], 0, y, paint);
@@ -443,6 +464,14 @@ abstract public class GraphView extends RelativeLayout {
 	protected final Paint paint;
 	private String[] horlabels;
 	private String[] verlabels;
+	/**
+	 * label positions from 0 to 1 (left to right, top to bottom), null if evenly spaced
+	 */
+	private float[] horlabelPositions;
+	private float[] verlabelPositions;
+	private boolean niceTicks;
+	private final AxisTicks horTicks = new AxisTicks();
+	private final AxisTicks verTicks = new AxisTicks();
     private Bitmap[] verImages;
 	private String title;
 	private boolean scrollable;
@@ -459,6 +488,7 @@ abstract public class GraphView extends RelativeLayout {
 	private boolean scalable;
 	private final NumberFormat[] numberformatter = new NumberFormat[2];
 	private final List<GraphViewSeries> graphSeries;
+	private final List<GraphViewDataWindow> seriesWindows = new ArrayList<GraphViewDataWindow>();
 	private boolean showLegend = false;
 	private float legendWidth = 120;
 	private LegendAlign legendAlign = LegendAlign.MIDDLE;
@@ -471,12 +501,52 @@ abstract public class GraphView extends RelativeLayout {
 	private Integer labelTextHeight;
 	private Integer horLabelTextWidth;
 	private Integer verLabelTextWidth;
+	/**
+	 * inputs of the cached labels, text metrics and formatters.
+	 * A cache is only rebuilt when one of its inputs changed.
+	 */
+	private double horlabelsMinX;
+	private double horlabelsMaxX;
+	private float horlabelsWidth;
+	private int horlabelsCount;
+	private double verlabelsMinY;
+	private double verlabelsMaxY;
+	private float verlabelsHeight;
+	private int verlabelsCount;
+	private float labelTextSize;
+	private final int[] formatterDigits = new int[2];
     private Integer verImagesWidth;
 	private final Rect textBounds = new Rect();
+	private final RectF legendRect = new RectF();
 	private boolean staticHorizontalLabels;
 	private boolean staticVerticalLabels;
     private boolean allowRefresh = true;
     private Bitmap[] sideImages;
+	/**
+	 * frame interval of the fallback without Choreographer, in ms
+	 */
+	static private final long FALLBACK_FRAME_INTERVAL = 16;
+	private boolean redrawScheduled;
+	private long lastRedrawTime;
+	private long minRedrawInterval;
+	private FrameRedraw frameRedraw;
+	/**
+	 * posts to the main thread also while the view is not attached.
+	 * Before API 24 View.post of another thread never runs then.
+	 */
+	private final Handler handler = new Handler(Looper.getMainLooper());
+	private final Runnable redrawRunnable = new Runnable() {
+		@Override
+		public void run() {
+			onRedrawFrame();
+		}
+	};
+	private final Runnable scheduleRedrawRunnable = new Runnable() {
+		@Override
+		public void run() {
+			scheduleRedraw();
+		}
+	};
 
     public GraphView(Context context, AttributeSet attrs) {
         this(context, attrs, false);
@@ -534,31 +604,26 @@ abstract public class GraphView extends RelativeLayout {
 		this(context, title, new GraphViewStyle(), verticalLabelsOnRight);
 	}
 
-	private GraphViewDataInterface[] _values(int idxSeries) {
-		GraphViewDataInterface[] values = graphSeries.get(idxSeries).values;
+	private GraphViewDataWindow _values(int idxSeries) {
+		GraphViewDataStore values = graphSeries.get(idxSeries).store;
+		GraphViewDataWindow window = seriesWindows.get(idxSeries);
+		window.seriesIndex = idxSeries;
 		synchronized (values) {
 			if (viewportStart == 0 && viewportSize == 0) {
 				// all data
-				return values;
+				return window.set(values, 0, values.size());
 			} else {
-				// viewport
-				List<GraphViewDataInterface> listData = new ArrayList<GraphViewDataInterface>();
-				for (int i=0; i<values.length; i++) {
-					if (values[i].getX() >= viewportStart) {
-						if (values[i].getX() > viewportStart+viewportSize) {
-							listData.add(values[i]); // one more for nice scrolling
-							break;
-						} else {
-							listData.add(values[i]);
-						}
-					} else {
-						if (listData.isEmpty()) {
-							listData.add(values[i]);
-						}
-						listData.set(0, values[i]); // one before, for nice scrolling
-					}
+				// viewport, values are sorted by x
+				int size = values.size();
+				int start = values.ceilingIndex(viewportStart);
+				if (start == size) {
+					// all data is before the viewport, use the last one
+					start = Math.max(size-1, 0);
+				} else if (start > 0) {
+					start--; // one before, for nice scrolling
 				}
-				return listData.toArray(new GraphViewDataInterface[listData.size()]);
+				int end = Math.min(values.higherIndex(viewportStart+viewportSize)+1, size); // one more for nice scrolling
+				return window.set(values, start, end);
 			}
 		}
 	}
@@ -570,6 +635,7 @@ abstract public class GraphView extends RelativeLayout {
 	public void addSeries(GraphViewSeries series) {
 		series.addGraphView(this);
 		graphSeries.add(series);
+		seriesWindows.add(new GraphViewDataWindow());
 		redrawAll();
 	}
 
@@ -593,11 +659,13 @@ abstract public class GraphView extends RelativeLayout {
 		}
 		float lRight = lLeft+legendWidth;
 		float lBottom = lTop+legendHeight;
-		canvas.drawRoundRect(new RectF(lLeft, lTop, lRight, lBottom), 8, 8, paint);
+		legendRect.set(lLeft, lTop, lRight, lBottom);
+		canvas.drawRoundRect(legendRect, 8, 8, paint);
 
 		for (int i=0; i<graphSeries.size(); i++) {
 			paint.setColor(graphSeries.get(i).style.color);
-			canvas.drawRect(new RectF(lLeft+5, lTop+5+(i*(shapeSize+5)), lLeft+5+shapeSize, lTop+((i+1)*(shapeSize+5))), paint);
+			legendRect.set(lLeft+5, lTop+5+(i*(shapeSize+5)), lLeft+5+shapeSize, lTop+((i+1)*(shapeSize+5)));
+			canvas.drawRect(legendRect, paint);
 			if (graphSeries.get(i).description != null) {
 				paint.setColor(Color.WHITE);
 				paint.setTextAlign(Align.LEFT);
@@ -606,8 +674,46 @@ abstract public class GraphView extends RelativeLayout {
 		}
 	}
 
+	/**
+	 * array based drawing, the data is copied for every frame.
+	 * Graphs that override {@link #drawSeries(Canvas, GraphViewDataWindow, float, float, float, double, double, double, double, float, GraphViewSeriesStyle, int[])}
+	 * should implement this by wrapping the array in a window.
+	 */
 	abstract protected void drawSeries(Canvas canvas, GraphViewDataInterface[] values, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart, GraphViewSeriesStyle style, int[] colors);
 
+	/**
+	 * draws the visible data of one series.
+	 * Override this to read the x/y values directly from the window, nothing is copied.
+	 * The default implementation copies the data to an array and
+	 * calls the array based drawSeries, for subclasses that only implement that one.
+	 * @param values the visible data, only valid during this call
+	 */
+	protected void drawSeries(Canvas canvas, GraphViewDataWindow values, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart, GraphViewSeriesStyle style, int[] colors) {
+		drawSeries(canvas, values.toDataArray(), graphwidth, graphheight, border, minX, minY, diffX, diffY, horstart, style, colors);
+	}
+
+	/**
+	 * if the store of the window keeps a level of detail pyramid, the visible data is
+	 * replaced by the coarsest level that still has one bucket per pixel
+	 * for the current viewport.
+	 * @param values the visible data
+	 * @param graphwidth width in pixels
+	 * @param out buffer for the reduced data
+	 * @return out, or values if there is no pyramid or not enough data points per pixel
+	 */
+	protected GraphViewDataStore getLevelOfDetail(GraphViewDataWindow values, float graphwidth, PrimitiveDataStore out) {
+		GraphViewDataStore store = values.getStore();
+		LevelOfDetail levelOfDetail = store.getLevelOfDetail();
+		if (levelOfDetail != null) {
+			synchronized (store) {
+				if (levelOfDetail.reduce(values.getStart(), values.getEnd(), graphwidth, out)) {
+					return out;
+				}
+			}
+		}
+		return values;
+	}
+
 	/**
 	 * formats the label
 	 * use #setCustomLabelFormatter or static labels if you want custom labels
@@ -627,24 +733,90 @@ abstract public class GraphView extends RelativeLayout {
 		}
 		int i = isValueX ? 1 : 0;
 		if (numberformatter[i] == null) {
-			numberformatter[i] = NumberFormat.getNumberInstance();
 			double highestvalue = isValueX ? getMaxX(false) : getMaxY();
 			double lowestvalue = isValueX ? getMinX(false) : getMinY();
-			if (highestvalue - lowestvalue < 0.1) {
-				numberformatter[i].setMaximumFractionDigits(6);
-			} else if (highestvalue - lowestvalue < 1) {
-				numberformatter[i].setMaximumFractionDigits(4);
-			} else if (highestvalue - lowestvalue < 20) {
-				numberformatter[i].setMaximumFractionDigits(3);
-			} else if (highestvalue - lowestvalue < 100) {
-				numberformatter[i].setMaximumFractionDigits(1);
-			} else {
-				numberformatter[i].setMaximumFractionDigits(0);
-			}
+			numberformatter[i] = NumberFormat.getNumberInstance();
+			formatterDigits[i] = fractionDigits(highestvalue - lowestvalue);
+			numberformatter[i].setMaximumFractionDigits(formatterDigits[i]);
 		}
 		return numberformatter[i].format(value);
 	}
 
+	static private int fractionDigits(double range) {
+		if (range < 0.1) {
+			return 6;
+		} else if (range < 1) {
+			return 4;
+		} else if (range < 20) {
+			return 3;
+		} else if (range < 100) {
+			return 1;
+		} else {
+			return 0;
+		}
+	}
+
+	/**
+	 * adapts the number of fraction digits of a formatter to the range
+	 * @return true if the formatter changed
+	 */
+	private boolean updateFormatter(boolean isValueX, double lowest, double highest) {
+		int i = isValueX ? 1 : 0;
+		int digits = fractionDigits(highest - lowest);
+		if (numberformatter[i] == null || digits == formatterDigits[i]) {
+			return false;
+		}
+		formatterDigits[i] = digits;
+		numberformatter[i].setMaximumFractionDigits(digits);
+		return true;
+	}
+
+	/**
+	 * @return the horizontal labels, regenerated if the viewport or the width changed
+	 */
+	private String[] getHorlabels(float graphwidth, double minX, double maxX) {
+		if (staticHorizontalLabels) {
+			return horlabels;
+		}
+		int count = getGraphViewStyle().getNumHorizontalLabels();
+		if (horlabels == null || minX != horlabelsMinX || maxX != horlabelsMaxX || graphwidth != horlabelsWidth || count != horlabelsCount) {
+			if (updateFormatter(true, minX, maxX)) {
+				// other label width
+				horLabelTextWidth = null;
+				measureBottomText();
+				horTicks.clearLabels();
+			}
+			horlabels = generateHorlabels(graphwidth);
+			horlabelsMinX = minX;
+			horlabelsMaxX = maxX;
+			horlabelsWidth = graphwidth;
+			horlabelsCount = count;
+		}
+		return horlabels;
+	}
+
+	/**
+	 * @return the vertical labels, regenerated if the y bounds or the height changed
+	 */
+	private String[] getVerlabels(float graphheight, double minY, double maxY) {
+		if (staticVerticalLabels) {
+			return verlabels;
+		}
+		int count = getGraphViewStyle().getNumVerticalLabels();
+		if (verlabels == null || minY != verlabelsMinY || maxY != verlabelsMaxY || graphheight != verlabelsHeight || count != verlabelsCount) {
+			if (updateFormatter(false, minY, maxY)) {
+				verTicks.clearLabels();
+			}
+			verlabels = generateVerlabels(graphheight);
+			verlabelsMinY = minY;
+			verlabelsMaxY = maxY;
+			verlabelsHeight = graphheight;
+			verlabelsCount = count;
+			verLabelTextWidth = null;
+		}
+		return verlabels;
+	}
+
     protected String formatLabel(double value, boolean isValueX) {
         return formatLabel(value, isValueX, -1, -1);
     }
@@ -655,9 +827,23 @@ abstract public class GraphView extends RelativeLayout {
 			numLabels = (int) (graphwidth/(horLabelTextWidth*2));
 		}
 
-		String[] labels = new String[numLabels+1];
 		double min = getMinX(false);
 		double max = getMaxX(false);
+		if (niceTicks) {
+			horTicks.update(min, max, numLabels+1);
+			int count = horTicks.getCount();
+			String[] labels = new String[count];
+			horlabelPositions = new float[count];
+			for (int i=0; i<count; i++) {
+				double value = horTicks.getValue(i);
+				labels[i] = tickLabel(horTicks, i, true);
+				horlabelPositions[i] = (float) ((value - min) / (max - min));
+			}
+			return labels;
+		}
+
+		String[] labels = new String[numLabels+1];
+		horlabelPositions = null;
 		for (int i=0; i<=numLabels; i++) {
 			labels[i] = formatLabel(min + ((max-min)*i/numLabels), true, numLabels + 1, i);
 		}
@@ -669,7 +855,6 @@ abstract public class GraphView extends RelativeLayout {
 		if (numLabels < 0) {
 			numLabels = (int) (graphheight/(labelTextHeight*3));
 		}
-		String[] labels = new String[numLabels+1];
 		double min = getMinY();
 		double max = getMaxY();
 		if (max == min) {
@@ -684,12 +869,52 @@ abstract public class GraphView extends RelativeLayout {
 			}
 		}
 
+		if (niceTicks) {
+			verTicks.update(min, max, numLabels+1);
+			int count = verTicks.getCount();
+			String[] labels = new String[count];
+			verlabelPositions = new float[count];
+			for (int i=0; i<count; i++) {
+				// top to bottom
+				double value = verTicks.getValue(i);
+				labels[count-1-i] = tickLabel(verTicks, i, false);
+				verlabelPositions[count-1-i] = (float) ((max - value) / (max - min));
+			}
+			return labels;
+		}
+
+		String[] labels = new String[numLabels+1];
+		verlabelPositions = null;
 		for (int i=0; i<=numLabels; i++) {
 			labels[numLabels-i] = formatLabel(min + ((max-min)*i/numLabels), false, numLabels + 1, i);
 		}
 		return labels;
 	}
 
+	/**
+	 * @return the label of a tick, formatted only if it is not cached
+	 */
+	private String tickLabel(AxisTicks ticks, int i, boolean isValueX) {
+		String label = ticks.getLabel(i);
+		if (label == null) {
+			label = formatLabel(ticks.getValue(i), isValueX, ticks.getCount(), i);
+			ticks.putLabel(i, label);
+		}
+		return label;
+	}
+
+	/**
+	 * @param positions label positions from 0 to 1, null if evenly spaced
+	 * @param intervals number of labels - 1
+	 * @return position of label i in pixels
+	 */
+	static private float labelPosition(float[] positions, int i, int intervals, float size) {
+		if (positions != null) {
+			return positions[i] * size;
+		}
+		return (size / intervals) * i;
+	}
+
     synchronized private Bitmap[] getVerImages() {
         int numLabels = getGraphViewStyle().getNumVerticalLabels();
         if (sideImages != null) {
@@ -745,16 +970,16 @@ abstract public class GraphView extends RelativeLayout {
 			// values must be sorted by x, so the last value has the largest X value
 			double highest = 0;
 			if (graphSeries.size() > 0) {
-				GraphViewDataInterface[] values = graphSeries.get(0).values;
-				if (values.length == 0) {
+				GraphViewDataStore values = graphSeries.get(0).store;
+				if (values.size() == 0) {
 					highest = 0;
 				} else {
-					highest = values[values.length-1].getX();
+					highest = values.getX(values.size()-1);
 				}
 				for (int i=1; i<graphSeries.size(); i++) {
-					values = graphSeries.get(i).values;
-					if (values.length > 0) {
-						highest = Math.max(highest, values[values.length-1].getX());
+					values = graphSeries.get(i).store;
+					if (values.size() > 0) {
+						highest = Math.max(highest, values.getX(values.size()-1));
 					}
 				}
 			}
@@ -762,6 +987,13 @@ abstract public class GraphView extends RelativeLayout {
 		}
 	}
 
+	/**
+	 * @return width of the graph in the content view, the graphwidth of drawSeries
+	 */
+	protected float getGraphWidth() {
+		return graphViewContentView.measureGraphWidth();
+	}
+
 	/**
 	 * returns the maximal Y value of all data.
 	 *
@@ -772,12 +1004,15 @@ abstract public class GraphView extends RelativeLayout {
 		if (manualYAxis) {
 			largest = manualMaxYValue;
 		} else {
-			largest = Integer.MIN_VALUE;
+			largest = Double.NEGATIVE_INFINITY;
 			for (int i=0; i<graphSeries.size(); i++) {
-				GraphViewDataInterface[] values = _values(i);
-				for (int ii=0; ii<values.length; ii++)
-					if (values[ii].getY() > largest)
-						largest = values[ii].getY();
+				double y = getMaxY(_values(i));
+				if (y > largest)
+					largest = y;
+			}
+			if (largest == Double.NEGATIVE_INFINITY) {
+				// no data
+				largest = 0;
 			}
 		}
 		return largest;
@@ -799,16 +1034,16 @@ abstract public class GraphView extends RelativeLayout {
 			// values must be sorted by x, so the first value has the smallest X value
 			double lowest = 0;
 			if (graphSeries.size() > 0) {
-				GraphViewDataInterface[] values = graphSeries.get(0).values;
-				if (values.length == 0) {
+				GraphViewDataStore values = graphSeries.get(0).store;
+				if (values.size() == 0) {
 					lowest = 0;
 				} else {
-					lowest = values[0].getX();
+					lowest = values.getX(0);
 				}
 				for (int i=1; i<graphSeries.size(); i++) {
-					values = graphSeries.get(i).values;
-					if (values.length > 0) {
-						lowest = Math.min(lowest, values[0].getX());
+					values = graphSeries.get(i).store;
+					if (values.size() > 0) {
+						lowest = Math.min(lowest, values.getX(0));
 					}
 				}
 			}
@@ -820,6 +1055,22 @@ abstract public class GraphView extends RelativeLayout {
         return getMinX(false);
     }
 
+	/**
+	 * @return the maximal Y value of the visible data of one series,
+	 * override this if the graph draws other values than the data
+	 */
+	protected double getMaxY(GraphViewDataWindow values) {
+		return values.getMaxY();
+	}
+
+	/**
+	 * @return the minimal Y value of the visible data of one series,
+	 * override this if the graph draws other values than the data
+	 */
+	protected double getMinY(GraphViewDataWindow values) {
+		return values.getMinY();
+	}
+
 	/**
 	 * returns the minimal Y value of all data.
 	 *
@@ -830,12 +1081,15 @@ abstract public class GraphView extends RelativeLayout {
 		if (manualYAxis) {
 			smallest = manualMinYValue;
 		} else {
-			smallest = Integer.MAX_VALUE;
+			smallest = Double.POSITIVE_INFINITY;
 			for (int i=0; i<graphSeries.size(); i++) {
-				GraphViewDataInterface[] values = _values(i);
-				for (int ii=0; ii<values.length; ii++)
-					if (values[ii].getY() < smallest)
-						smallest = values[ii].getY();
+				double y = getMinY(_values(i));
+				if (y < smallest)
+					smallest = y;
+			}
+			if (smallest == Double.POSITIVE_INFINITY) {
+				// no data
+				smallest = 0;
 			}
 		}
 		return smallest;
@@ -867,15 +1121,81 @@ abstract public class GraphView extends RelativeLayout {
             horLabelTextWidth = null;
             verLabelTextWidth = null;
 
-            invalidate();
-            viewVerLabels.invalidate();
+            invalidateViews();
+        }
+	}
 
-            if (viewVerImages != null) {
-                viewVerImages.invalidate();
-            }
+	/**
+	 * redraws the views, the caches are only rebuilt if their inputs changed
+	 */
+	private void invalidateViews() {
+		if (allowRefresh) {
+			invalidate();
+			viewVerLabels.invalidate();
 
-            graphViewContentView.invalidate();
-        }
+			if (viewVerImages != null) {
+				viewVerImages.invalidate();
+			}
+
+			graphViewContentView.invalidate();
+		}
+	}
+
+	/**
+	 * redraws at the next display frame, like {@link #redrawAll()}.
+	 * All changes until then cause only one redraw, see {@link #setMaxRefreshRate(float)}.
+	 * Can be called from any thread.
+	 */
+	public void scheduleRedraw() {
+		if (Looper.myLooper() != Looper.getMainLooper()) {
+			handler.post(scheduleRedrawRunnable);
+			return;
+		}
+		if (redrawScheduled) {
+			return;
+		}
+		redrawScheduled = true;
+		long delay = Math.max(lastRedrawTime + minRedrawInterval - SystemClock.uptimeMillis(), 0);
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			if (frameRedraw == null) {
+				frameRedraw = new FrameRedraw();
+			}
+			frameRedraw.post(delay);
+		} else {
+			delay = Math.max(delay, lastRedrawTime + FALLBACK_FRAME_INTERVAL - SystemClock.uptimeMillis());
+			handler.postDelayed(redrawRunnable, delay);
+		}
+	}
+
+	private void onRedrawFrame() {
+		redrawScheduled = false;
+		lastRedrawTime = SystemClock.uptimeMillis();
+		invalidateViews();
+	}
+
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		if (redrawScheduled) {
+			if (frameRedraw != null) {
+				frameRedraw.cancel();
+			}
+			handler.removeCallbacks(redrawRunnable);
+			redrawScheduled = false;
+		}
+	}
+
+	public float getMaxRefreshRate() {
+		return minRedrawInterval == 0 ? 0 : 1000f / minRedrawInterval;
+	}
+
+	/**
+	 * limits the redraws caused by data changes and scrolling,
+	 * useful for battery-sensitive screens.
+	 * @param framesPerSecond max redraws per second, 0 for every display frame (default)
+	 */
+	public void setMaxRefreshRate(float framesPerSecond) {
+		minRedrawInterval = framesPerSecond <= 0 ? 0 : (long) (1000 / framesPerSecond);
 	}
 
 	/**
@@ -886,7 +1206,10 @@ abstract public class GraphView extends RelativeLayout {
 			s.removeGraphView(this);
 		}
 		while (!graphSeries.isEmpty()) {
-			graphSeries.remove(0);
+			int index = graphSeries.size() - 1;
+			graphSeries.remove(index);
+			seriesWindows.remove(index);
+			onSeriesRemoved(index);
 		}
 		redrawAll();
 	}
@@ -897,10 +1220,41 @@ abstract public class GraphView extends RelativeLayout {
 	 */
 	public void removeSeries(GraphViewSeries series) {
 		series.removeGraphView(this);
-		graphSeries.remove(series);
+		int index = graphSeries.indexOf(series);
+		if (index != -1) {
+			graphSeries.remove(index);
+			seriesWindows.remove(index);
+			onSeriesRemoved(index);
+		}
 		redrawAll();
 	}
 
+	/**
+	 * a series was removed, subclasses drop their caches of it
+	 * @param index position of the removed series, the series after it moved down by one
+	 */
+	protected void onSeriesRemoved(int index) {
+	}
+
+	/**
+	 * the data of a series was replaced by resetData,
+	 * subclasses drop their caches of the old data
+	 * @param index position of the series
+	 */
+	protected void onSeriesDataReset(int index) {
+	}
+
+	/**
+	 * called by the series after resetData
+	 */
+	void seriesDataReset(GraphViewSeries series) {
+		for (int i = 0; i < graphSeries.size(); i++) {
+			if (graphSeries.get(i) == series) {
+				onSeriesDataReset(i);
+			}
+		}
+	}
+
 	/**
 	 * removes series
 	 * @param index 
@@ -922,7 +1276,7 @@ abstract public class GraphView extends RelativeLayout {
 
 		double max = getMaxX(true);
 		viewportStart = max-viewportSize;
-		redrawAll();
+		scheduleRedraw();
 	}
 
     /**
@@ -939,7 +1293,7 @@ abstract public class GraphView extends RelativeLayout {
         }
 
         viewportStart += diff;
-        redrawAll();
+        scheduleRedraw();
     }
 
 	/**
@@ -948,6 +1302,11 @@ abstract public class GraphView extends RelativeLayout {
 	 */
 	public void setCustomLabelFormatter(CustomLabelFormatter customLabelFormatter) {
 		this.customLabelFormatter = customLabelFormatter;
+		if (!staticHorizontalLabels) horlabels = null;
+		if (!staticVerticalLabels) verlabels = null;
+		horLabelTextWidth = null;
+		horTicks.clearLabels();
+		verTicks.clearLabels();
 	}
 
 	/**
@@ -974,6 +1333,7 @@ abstract public class GraphView extends RelativeLayout {
 	public void setHorizontalLabels(String[] horlabels) {
 		staticHorizontalLabels = horlabels != null;
 		this.horlabels = horlabels;
+		horlabelPositions = null;
 	}
 
 	/**
@@ -1046,7 +1406,7 @@ abstract public class GraphView extends RelativeLayout {
 							viewportSize = maxX - viewportStart;
 						}
 					}
-					redrawAll();
+					scheduleRedraw();
 					return true;
 				}
 			});
@@ -1073,6 +1433,23 @@ abstract public class GraphView extends RelativeLayout {
 		this.title = title;
 	}
 
+	public boolean isNiceTicks() {
+		return niceTicks;
+	}
+
+	/**
+	 * put the labels and grid lines at round values (1, 2 or 5 * 10^k)
+	 * instead of splitting the axis evenly. The labels then stay at their
+	 * values while scrolling and are only formatted once.
+	 * The number of labels of the style is the maximum then.
+	 * @param niceTicks default false
+	 */
+	public void setNiceTicks(boolean niceTicks) {
+		this.niceTicks = niceTicks;
+		if (!staticHorizontalLabels) horlabels = null;
+		if (!staticVerticalLabels) verlabels = null;
+	}
+
     /**
      * If we want to show vertical lines
      */
@@ -1087,6 +1464,7 @@ abstract public class GraphView extends RelativeLayout {
 	public void setVerticalLabels(String[] verlabels) {
 		staticVerticalLabels = verlabels != null;
 		this.verlabels = verlabels;
+		verlabelPositions = null;
 	}
 
 	/**
@@ -1124,13 +1502,25 @@ abstract public class GraphView extends RelativeLayout {
         view.setLayoutParams(params);
     }
 
+    /**
+     * measures a label, only if the text size or the label format changed
+     */
     private void measureBottomText() {
-        if (labelTextHeight == null) {
-            paint.setTextSize(getGraphViewStyle().getTextSize());
-            double testY = ((getMaxY()-getMinY())*0.783)+getMinY();
-            String testLabel = formatLabel(testY, false);
+        float textSize = getGraphViewStyle().getTextSize();
+        paint.setTextSize(textSize);
+        if (labelTextHeight == null || horLabelTextWidth == null || textSize != labelTextSize) {
+            double testX = ((getMaxX(true)-getMinX(true))*0.783)+getMinX(true);
+            String testLabel = formatLabel(testX, true);
             paint.getTextBounds(testLabel, 0, testLabel.length(), textBounds);
+            if (labelTextHeight != null && horLabelTextWidth != null
+                    && (textBounds.height() != labelTextHeight || textBounds.width() != horLabelTextWidth)) {
+                // the number of labels depends on the text size
+                if (!staticHorizontalLabels) horlabels = null;
+                if (!staticVerticalLabels) verlabels = null;
+            }
             labelTextHeight = (textBounds.height());
+            horLabelTextWidth = (textBounds.width());
+            labelTextSize = textSize;
         }
     }
 }
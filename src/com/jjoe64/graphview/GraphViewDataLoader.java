@@ -0,0 +1,290 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+package com.jjoe64.graphview;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * loads data into a series in the background.
+ * The input is parsed on the executor in chunks, every chunk is appended
+ * to the series on the main thread and the graph views are redrawn,
+ * so the data shows up while the rest is still loading.
+ * The first chunks are small, so the first data is drawn quickly.
+ * The data has to be sorted by x. It is appended to the current data of the series.
+ */
+public class GraphViewDataLoader {
+	/**
+	 * callbacks of a load, called on the main thread
+	 */
+	public interface Listener {
+		/**
+		 * a chunk was appended to the series
+		 * @param count number of data points loaded so far
+		 */
+		void onProgress(GraphViewSeries series, int count);
+
+		/**
+		 * @param count number of data points loaded
+		 */
+		void onComplete(GraphViewSeries series, int count);
+
+		/**
+		 * the input could not be read. The chunks before the error stay in the series.
+		 */
+		void onError(GraphViewSeries series, IOException e);
+	}
+
+	static private final int FIRST_CHUNK_SIZE = 1024;
+
+	private final ExecutorService executor;
+	private final Handler handler = new Handler(Looper.getMainLooper());
+	private int chunkSize = 64 * 1024;
+
+	/**
+	 * @param executor runs the parsing
+	 */
+	public GraphViewDataLoader(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * @param chunkSize max number of data points that are appended at once. default 65536
+	 */
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = Math.max(chunkSize, FIRST_CHUNK_SIZE);
+	}
+
+	/**
+	 * loads lines of "x,y". The values can also be separated by ';', tab or space.
+	 * Empty lines are skipped, the first line may be a header.
+	 * @param in closed when the load has finished
+	 * @param listener may be null
+	 * @return cancel it to stop the load
+	 * @throws UnsupportedOperationException if the data store of the series is read-only
+	 */
+	public Future<?> loadCsv(final InputStream in, final GraphViewSeries series, final Listener listener) {
+		series.checkWritable();
+		return executor.submit(new Runnable() {
+			@Override
+			public void run() {
+				Chunker chunker = new Chunker(series, listener);
+				try {
+					BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+					int lineNumber = 0;
+					String line;
+					while ((line = reader.readLine()) != null && !Thread.currentThread().isInterrupted()) {
+						lineNumber++;
+						line = line.trim();
+						if (line.length() == 0) {
+							continue;
+						}
+						int separator = separator(line);
+						try {
+							if (separator < 0) {
+								throw new NumberFormatException();
+							}
+							chunker.add(Double.parseDouble(line.substring(0, separator).trim()),
+									Double.parseDouble(line.substring(separator + 1).trim()));
+						} catch (NumberFormatException e) {
+							if (lineNumber > 1) {
+								throw new IOException("invalid data in line " + lineNumber + ": " + line);
+							}
+							// header
+						}
+					}
+					chunker.complete();
+				} catch (IOException e) {
+					chunker.error(e);
+				} finally {
+					close(in);
+				}
+			}
+		});
+	}
+
+	/**
+	 * loads packed big-endian x/y doubles (x0, y0, x1, y1, ...),
+	 * the format of {@link MappedFileDataStore}.
+	 * @param in closed when the load has finished
+	 * @param listener may be null
+	 * @return cancel it to stop the load
+	 * @throws UnsupportedOperationException if the data store of the series is read-only
+	 */
+	public Future<?> loadBinary(final InputStream in, final GraphViewSeries series, final Listener listener) {
+		series.checkWritable();
+		return executor.submit(new Runnable() {
+			@Override
+			public void run() {
+				Chunker chunker = new Chunker(series, listener);
+				try {
+					ReadableByteChannel channel = Channels.newChannel(in);
+					ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+					DoubleBuffer doubles = buffer.asDoubleBuffer();
+					while (!Thread.currentThread().isInterrupted()) {
+						int read = channel.read(buffer);
+						int pairs = buffer.position() / 16;
+						doubles.clear();
+						for (int i = 0; i < pairs; i++) {
+							chunker.add(doubles.get(), doubles.get());
+						}
+						buffer.flip();
+						buffer.position(pairs * 16);
+						buffer.compact();
+						if (read < 0) {
+							if (buffer.position() != 0) {
+								throw new IOException("truncated data point at the end");
+							}
+							break;
+						}
+					}
+					chunker.complete();
+				} catch (IOException e) {
+					chunker.error(e);
+				} finally {
+					close(in);
+				}
+			}
+		});
+	}
+
+	static private int separator(String line) {
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == ',' || c == ';' || c == '\t' || c == ' ') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	static private void close(InputStream in) {
+		try {
+			in.close();
+		} catch (IOException e) {
+			// nothing to do
+		}
+	}
+
+	/**
+	 * collects the parsed data and hands the chunks to the main thread
+	 */
+	private class Chunker {
+		private final GraphViewSeries series;
+		private final Listener listener;
+		private double[] xs;
+		private double[] ys;
+		private int count;
+		private int total;
+
+		Chunker(GraphViewSeries series, Listener listener) {
+			this.series = series;
+			this.listener = listener;
+			this.xs = new double[FIRST_CHUNK_SIZE];
+			this.ys = new double[FIRST_CHUNK_SIZE];
+		}
+
+		void add(double x, double y) {
+			xs[count] = x;
+			ys[count] = y;
+			count++;
+			if (count == xs.length) {
+				flush();
+			}
+		}
+
+		void complete() {
+			flush();
+			if (Thread.currentThread().isInterrupted()) {
+				return;
+			}
+			final int loaded = total;
+			handler.post(new Runnable() {
+				@Override
+				public void run() {
+					if (listener != null) {
+						listener.onComplete(series, loaded);
+					}
+				}
+			});
+		}
+
+		void error(final IOException e) {
+			flush();
+			if (Thread.currentThread().isInterrupted() || e instanceof ClosedByInterruptException) {
+				// cancelled, not an error
+				return;
+			}
+			handler.post(new Runnable() {
+				@Override
+				public void run() {
+					if (listener != null) {
+						listener.onError(series, e);
+					}
+				}
+			});
+		}
+
+		private void flush() {
+			if (count == 0 || Thread.currentThread().isInterrupted()) {
+				return;
+			}
+			final double[] chunkX = count == xs.length ? xs : Arrays.copyOf(xs, count);
+			final double[] chunkY = count == ys.length ? ys : Arrays.copyOf(ys, count);
+			total += count;
+			final int loaded = total;
+			handler.post(new Runnable() {
+				@Override
+				public void run() {
+					if (series.getDataStore().isReadOnly()) {
+						// the store was replaced by resetData during the load
+						return;
+					}
+					series.appendData(chunkX, chunkY, false, Integer.MAX_VALUE, false);
+					if (listener != null) {
+						listener.onProgress(series, loaded);
+					}
+				}
+			});
+			// the next chunks get bigger, up to chunkSize
+			int next = Math.min(xs.length * 2, chunkSize);
+			xs = new double[next];
+			ys = new double[next];
+			count = 0;
+		}
+	}
+}
@@ -0,0 +1,330 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+package com.jjoe64.graphview;
+
+/**
+ * the storage behind a graph series.
+ * values are accessed by index and must be sorted by x.
+ * Use {@link PrimitiveDataStore} for large data, it keeps x and y
+ * in primitive columns instead of one object per data point.
+ */
+public abstract class GraphViewDataStore {
+	/**
+	 * smaller ranges are scanned, that is faster than the index
+	 */
+	static private final int RANGE_INDEX_MIN_SIZE = 64;
+
+	private RangeExtremaIndex rangeIndex;
+	private LevelOfDetail levelOfDetail;
+	/**
+	 * changes with every change of the data, for caches of the drawn data
+	 */
+	private int version;
+	/**
+	 * number of data points removed from the start so far.
+	 * Index + removedCount of a data point doesn't change while data is appended and removed.
+	 */
+	private long removedCount;
+	/**
+	 * changes only with changes other than appending data or removing the oldest data
+	 */
+	private int changeCount;
+
+	/**
+	 * @return number of data points
+	 */
+	public abstract int size();
+
+	/**
+	 * @param index 0 <= index < size()
+	 * @return x value of the data point
+	 */
+	public abstract double getX(int index);
+
+	/**
+	 * @param index 0 <= index < size()
+	 * @return y value of the data point
+	 */
+	public abstract double getY(int index);
+
+	/**
+	 * @return the smallest y value, or positive infinity if the store is empty
+	 */
+	public double getMinY() {
+		return getMinY(0, size());
+	}
+
+	/**
+	 * @return the largest y value, or negative infinity if the store is empty
+	 */
+	public double getMaxY() {
+		return getMaxY(0, size());
+	}
+
+	/**
+	 * @param start first index (inclusive)
+	 * @param end last index (exclusive)
+	 * @return the smallest y value in the range, or positive infinity if the range is empty
+	 */
+	public double getMinY(int start, int end) {
+		if (rangeIndex != null && end - start > RANGE_INDEX_MIN_SIZE) {
+			return rangeIndex.getMinY(start, end);
+		}
+		double smallest = Double.POSITIVE_INFINITY;
+		for (int i = start; i < end; i++) {
+			double y = getY(i);
+			if (y < smallest) {
+				smallest = y;
+			}
+		}
+		return smallest;
+	}
+
+	/**
+	 * @param start first index (inclusive)
+	 * @param end last index (exclusive)
+	 * @return the largest y value in the range, or negative infinity if the range is empty
+	 */
+	public double getMaxY(int start, int end) {
+		if (rangeIndex != null && end - start > RANGE_INDEX_MIN_SIZE) {
+			return rangeIndex.getMaxY(start, end);
+		}
+		double largest = Double.NEGATIVE_INFINITY;
+		for (int i = start; i < end; i++) {
+			double y = getY(i);
+			if (y > largest) {
+				largest = y;
+			}
+		}
+		return largest;
+	}
+
+	/**
+	 * with the range index the min/max y of any index range is found
+	 * in O(log n), instead of scanning the range.
+	 * Useful for zooming and scrolling in long series.
+	 * The index is built on the first query and updated on append.
+	 * @param enabled true to use the index
+	 */
+	public void setRangeIndexEnabled(boolean enabled) {
+		if (!enabled) {
+			rangeIndex = null;
+		} else if (rangeIndex == null) {
+			rangeIndex = new RangeExtremaIndex(this);
+		}
+	}
+
+	public boolean isRangeIndexEnabled() {
+		return rangeIndex != null;
+	}
+
+	/**
+	 * keeps a pyramid of pre-aggregated levels (min/max per 2^k data points).
+	 * If much more data points than pixels are visible, a line graph draws
+	 * a level instead of the data points, so the cost doesn't depend on the history length.
+	 * The pyramid is built on first use and updated on append.
+	 * @param enabled true to keep the pyramid
+	 */
+	public void setLevelOfDetailEnabled(boolean enabled) {
+		if (!enabled) {
+			levelOfDetail = null;
+		} else if (levelOfDetail == null) {
+			levelOfDetail = new LevelOfDetail(this);
+		}
+	}
+
+	public boolean isLevelOfDetailEnabled() {
+		return levelOfDetail != null;
+	}
+
+	LevelOfDetail getLevelOfDetail() {
+		return levelOfDetail;
+	}
+
+	int getVersion() {
+		return version;
+	}
+
+	long getRemovedCount() {
+		return removedCount;
+	}
+
+	int getChangeCount() {
+		return changeCount;
+	}
+
+	/**
+	 * has to be called by subclasses after a data point was appended
+	 * @param y the y value of the new data point
+	 */
+	protected void onDataAppended(double y) {
+		version++;
+		if (rangeIndex != null) {
+			rangeIndex.onAppend(y);
+		}
+		if (levelOfDetail != null) {
+			levelOfDetail.onAppend(y);
+		}
+	}
+
+	/**
+	 * has to be called by subclasses when the oldest data points were removed
+	 * @param count number of removed data points
+	 */
+	protected void onDataRemoved(int count) {
+		version++;
+		removedCount += count;
+		if (rangeIndex != null) {
+			rangeIndex.onRemoveFirst(count);
+		}
+		if (levelOfDetail != null) {
+			levelOfDetail.onRemoveFirst(count);
+		}
+	}
+
+	/**
+	 * has to be called by subclasses when the data changed in any other way
+	 */
+	protected void onDataChanged() {
+		version++;
+		changeCount++;
+		if (rangeIndex != null) {
+			rangeIndex.invalidate();
+		}
+		if (levelOfDetail != null) {
+			levelOfDetail.invalidate();
+		}
+	}
+
+	/**
+	 * binary search, values must be sorted by x.
+	 * @return index of the first data point with x >= value, or size() if there is none
+	 */
+	public int ceilingIndex(double value) {
+		int low = 0;
+		int high = size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (getX(mid) < value) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * binary search, values must be sorted by x.
+	 * @return index of the first data point with x > value, or size() if there is none
+	 */
+	public int higherIndex(double value) {
+		int low = 0;
+		int high = size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (getX(mid) <= value) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * returns the data point as object. Stores that don't hold objects
+	 * create a new one, so don't call this in a drawing loop.
+	 * @param index 0 <= index < size()
+	 * @return the data point
+	 */
+	public GraphViewDataInterface getDataItem(int index) {
+		return new GraphView.GraphViewData(getX(index), getY(index));
+	}
+
+	/**
+	 * @return true if the store doesn't support append and removeFirst.
+	 * Stores that implement them return false.
+	 */
+	public boolean isReadOnly() {
+		return true;
+	}
+
+	/**
+	 * appends one data point at the end.
+	 * the x value must not be smaller than the last x value.
+	 * @throws UnsupportedOperationException if the store is read-only
+	 */
+	public void append(double x, double y) {
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " is read-only.");
+	}
+
+	/**
+	 * appends one data point at the end.
+	 * @see #append(double, double)
+	 */
+	public void append(GraphViewDataInterface value) {
+		append(value.getX(), value.getY());
+	}
+
+	/**
+	 * appends several data points at the end.
+	 * @param xs x values, sorted
+	 * @param ys y values
+	 * @param offset index of the first data point in xs/ys
+	 * @param count number of data points
+	 * @see #append(double, double)
+	 */
+	public void append(double[] xs, double[] ys, int offset, int count) {
+		for (int i = offset; i < offset + count; i++) {
+			append(xs[i], ys[i]);
+		}
+	}
+
+	/**
+	 * removes the oldest data points
+	 * @param count number of data points to remove
+	 * @throws UnsupportedOperationException if the store is read-only
+	 */
+	public void removeFirst(int count) {
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " is read-only.");
+	}
+
+	/**
+	 * copies the data to an object array. only used for
+	 * compatibility with the old array based api.
+	 * @param start first index (inclusive)
+	 * @param end last index (exclusive)
+	 */
+	public GraphViewDataInterface[] toDataArray(int start, int end) {
+		GraphViewDataInterface[] values = new GraphViewDataInterface[end - start];
+		for (int i = start; i < end; i++) {
+			values[i - start] = getDataItem(i);
+		}
+		return values;
+	}
+
+	/**
+	 * @see #toDataArray(int, int)
+	 */
+	public GraphViewDataInterface[] toDataArray() {
+		return toDataArray(0, size());
+	}
+}
@@ -0,0 +1,130 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+package com.jjoe64.graphview;
+
+/**
+ * read-only view of the visible part of a series.
+ * Index 0 of the window is index {@link #getStart()} of the store,
+ * nothing is copied.
+ * GraphView reuses one window per series, so it is only valid
+ * during the call that received it.
+ */
+public final class GraphViewDataWindow extends GraphViewDataStore {
+	private GraphViewDataStore store;
+	private int start;
+	private int end;
+	/**
+	 * index of the series in the GraphView, -1 if unknown
+	 */
+	int seriesIndex = -1;
+
+	GraphViewDataWindow() {
+	}
+
+	/**
+	 * @param store backing store
+	 * @param start first index (inclusive)
+	 * @param end last index (exclusive)
+	 */
+	public GraphViewDataWindow(GraphViewDataStore store, int start, int end) {
+		set(store, start, end);
+	}
+
+	GraphViewDataWindow set(GraphViewDataStore store, int start, int end) {
+		this.store = store;
+		this.start = start;
+		this.end = end;
+		return this;
+	}
+
+	/**
+	 * @return the backing store
+	 */
+	public GraphViewDataStore getStore() {
+		return store;
+	}
+
+	/**
+	 * @return first index in the backing store (inclusive)
+	 */
+	public int getStart() {
+		return start;
+	}
+
+	/**
+	 * @return last index in the backing store (exclusive)
+	 */
+	public int getEnd() {
+		return end;
+	}
+
+	@Override
+	public int size() {
+		return end - start;
+	}
+
+	@Override
+	public double getX(int index) {
+		return store.getX(start + index);
+	}
+
+	@Override
+	public double getY(int index) {
+		return store.getY(start + index);
+	}
+
+	@Override
+	public double getMinY() {
+		if (start == 0 && end == store.size()) {
+			// whole store, it may know its extremes
+			return store.getMinY();
+		}
+		return store.getMinY(start, end);
+	}
+
+	@Override
+	public double getMaxY() {
+		if (start == 0 && end == store.size()) {
+			// whole store, it may know its extremes
+			return store.getMaxY();
+		}
+		return store.getMaxY(start, end);
+	}
+
+	@Override
+	public double getMinY(int start, int end) {
+		return store.getMinY(this.start + start, this.start + end);
+	}
+
+	@Override
+	public double getMaxY(int start, int end) {
+		return store.getMaxY(this.start + start, this.start + end);
+	}
+
+	@Override
+	public GraphViewDataInterface getDataItem(int index) {
+		return store.getDataItem(start + index);
+	}
+
+	@Override
+	public GraphViewDataInterface[] toDataArray(int start, int end) {
+		return store.toDataArray(this.start + start, this.start + end);
+	}
+}
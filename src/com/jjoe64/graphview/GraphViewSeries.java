@@ -19,15 +19,25 @@
 
 package com.jjoe64.graphview;
 
-import android.os.Build;
-
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import android.os.Handler;
+import android.os.Looper;
 
 /**
  * a graphview series.
  * holds the data, description and styles
+ *
+ * Threading: the graph views draw on the UI thread, so the data must only be
+ * changed on the UI thread (appendData, resetData), then a frame always
+ * sees consistent data. appendData changes the data before it returns.
+ * To feed a series from other threads, for example sensor threads,
+ * use {@link #postData(double, double, boolean, int, boolean)}.
+ * Every thread gets its own lock-free queue, so producers never block each
+ * other or the UI thread. The queued data is merged by x and appended on the
+ * UI thread in one bulk append before the next frame.
  */
 public class GraphViewSeries {
 	/**
@@ -63,23 +73,94 @@ public class GraphViewSeries {
 
 	final String description;
 	final GraphViewSeriesStyle style;
-	GraphViewDataInterface[] values;
+	volatile GraphViewDataStore store;
+	private boolean rangeIndexEnabled;
+	private boolean levelOfDetailEnabled;
 	private final List<GraphView> graphViews = new ArrayList<GraphView>();
 
+	/**
+	 * queue of one producer thread
+	 */
+	static private class Stripe {
+		final DataQueue queue = new DataQueue(QUEUE_CAPACITY);
+		final Thread owner = Thread.currentThread();
+		/**
+		 * settings of the last postData, written by the owner before the data is published
+		 */
+		boolean scrollToEnd;
+		int maxDataCount;
+		boolean properScroll;
+		/**
+		 * x of the last data taken from the queue, UI thread only
+		 */
+		double drainedX = Double.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 * max number of queued data points of postData, per thread
+	 */
+	static private final int QUEUE_CAPACITY = 8192;
+	/**
+	 * ms until held back data is merged again
+	 */
+	static private final long HELD_BACK_DELAY = 16;
+	/**
+	 * copy on write, registering a thread replaces the array
+	 */
+	private volatile Stripe[] stripes = new Stripe[0];
+	private final ThreadLocal<Stripe> localStripe = new ThreadLocal<Stripe>() {
+		@Override
+		protected Stripe initialValue() {
+			return register();
+		}
+	};
+	private volatile int lateDataCount;
+	private final AtomicBoolean drainPosted = new AtomicBoolean();
+	private Handler handler;
+	/**
+	 * UI thread only, buffers and settings of the data appended by drainQueue
+	 */
+	private double[] drainX;
+	private double[] drainY;
+	private boolean drainScrollToEnd;
+	private int drainMaxDataCount;
+	private boolean drainProperScroll;
+	private final Runnable drain = new Runnable() {
+		@Override
+		public void run() {
+			drainPosted.set(false);
+			drainQueue();
+		}
+	};
+
 	public GraphViewSeries(GraphViewDataInterface[] values) {
-		description = null;
-		style = new GraphViewSeriesStyle();
-		this.values = values;
+		this(null, null, new ObjectDataStore(values));
 	}
 
 	public GraphViewSeries(String description, GraphViewSeriesStyle style, GraphViewDataInterface[] values) {
+		this(description, style, new ObjectDataStore(values));
+	}
+
+	/**
+	 * series with primitive x/y columns, see {@link PrimitiveDataStore}
+	 * @param xs x values, sorted
+	 * @param ys y values
+	 */
+	public GraphViewSeries(String description, GraphViewSeriesStyle style, double[] xs, double[] ys) {
+		this(description, style, new PrimitiveDataStore(xs, ys));
+	}
+
+	/**
+	 * @param store the data, see {@link PrimitiveDataStore}
+	 */
+	public GraphViewSeries(String description, GraphViewSeriesStyle style, GraphViewDataStore store) {
 		super();
 		this.description = description;
 		if (style == null) {
 			style = new GraphViewSeriesStyle();
 		}
 		this.style = style;
-		this.values = values;
+		this.store = store;
 	}
 
 	/**
@@ -98,12 +179,10 @@ public class GraphViewSeries {
 	 */
 	@Deprecated
 	public void appendData(GraphViewDataInterface value, boolean scrollToEnd) {
-		GraphViewDataInterface[] newValues = new GraphViewDataInterface[values.length + 1];
-		int offset = values.length;
-		System.arraycopy(values, 0, newValues, 0, offset);
-
-		newValues[values.length] = value;
-		values = newValues;
+		checkWritable();
+		synchronized (store) {
+			store.append(value);
+		}
 		for (GraphView g : graphViews) {
 			if (scrollToEnd) {
 				g.scrollToEnd();
@@ -113,29 +192,313 @@ public class GraphViewSeries {
 
 	/**
 	 * add one data to current data
+	 * Call it on the UI thread, other threads use postData.
 	 * @param value the new data to append
 	 * @param scrollToEnd true => graphview will scroll to the end (maxX)
 	 * @param maxDataCount if max data count is reached, the oldest data value will be lost
+	 * @throws UnsupportedOperationException if the data store is read-only
 	 */
 	public void appendData(GraphViewDataInterface value, boolean scrollToEnd, int maxDataCount, boolean properScroll) {
-		synchronized (values) {
-			int curDataCount = values.length;
-			GraphViewDataInterface[] newValues;
-			if (curDataCount < maxDataCount) {
-				// enough space
-				newValues = new GraphViewDataInterface[curDataCount + 1];
-				System.arraycopy(values, 0, newValues, 0, curDataCount);
-				// append new data
-				newValues[curDataCount] = value;
+		checkWritable();
+		synchronized (store) {
+			store.append(value);
+			trim(maxDataCount);
+		}
+		onDataAppended(scrollToEnd, properScroll);
+	}
+
+	/**
+	 * add one data to current data, without creating a data object.
+	 * Call it on the UI thread, other threads use postData.
+	 * Use a {@link RingBufferDataStore} for realtime data, then
+	 * this doesn't allocate memory and runs in constant time.
+	 * @param x the new x value
+	 * @param y the new y value
+	 * @param scrollToEnd true => graphview will scroll to the end (maxX)
+	 * @param maxDataCount if max data count is reached, the oldest data value will be lost
+	 * @throws UnsupportedOperationException if the data store is read-only
+	 */
+	public void appendData(double x, double y, boolean scrollToEnd, int maxDataCount, boolean properScroll) {
+		checkWritable();
+		synchronized (store) {
+			store.append(x, y);
+			trim(maxDataCount);
+		}
+		onDataAppended(scrollToEnd, properScroll);
+	}
+
+	/**
+	 * add several data points at once. The data is appended in one pass,
+	 * trimmed once and the graph views are updated once.
+	 * Call it on the UI thread, other threads use postData.
+	 * @param xs the new x values, sorted
+	 * @param ys the new y values
+	 * @param scrollToEnd true => graphview will scroll to the end (maxX)
+	 * @param maxDataCount if max data count is reached, the oldest data values will be lost
+	 * @throws UnsupportedOperationException if the data store is read-only
+	 */
+	public void appendData(double[] xs, double[] ys, boolean scrollToEnd, int maxDataCount, boolean properScroll) {
+		if (xs.length != ys.length) {
+			throw new IllegalArgumentException("xs and ys must have the same length.");
+		}
+		checkWritable();
+		synchronized (store) {
+			store.append(xs, ys, 0, xs.length);
+			trim(maxDataCount);
+		}
+		onDataAppended(scrollToEnd, properScroll);
+	}
+
+	/**
+	 * add several data points at once. The data is appended in one pass,
+	 * trimmed once and the graph views are updated once.
+	 * Call it on the UI thread, other threads use postData.
+	 * @param values the new data, sorted by x
+	 * @param scrollToEnd true => graphview will scroll to the end (maxX)
+	 * @param maxDataCount if max data count is reached, the oldest data values will be lost
+	 * @throws UnsupportedOperationException if the data store is read-only
+	 */
+	public void appendData(GraphViewDataInterface[] values, boolean scrollToEnd, int maxDataCount, boolean properScroll) {
+		checkWritable();
+		synchronized (store) {
+			for (GraphViewDataInterface value : values) {
+				store.append(value);
+			}
+			trim(maxDataCount);
+		}
+		onDataAppended(scrollToEnd, properScroll);
+	}
+
+	/**
+	 * add one data point from any thread, without blocking.
+	 * The data is queued and appended on the UI thread, like
+	 * {@link #appendData(double, double, boolean, int, boolean)}.
+	 * The x values of one thread must be sorted. If several threads post,
+	 * the data is merged by x: data is held back until every other live thread
+	 * has posted data with the same or a bigger x, or has ended.
+	 * Only a thread that starts posting below the appended data loses that data,
+	 * see {@link #getLateDataCount()}.
+	 * The settings belong to the posting thread, if several threads post,
+	 * the graph views scroll if one of them asks for it and the series is trimmed
+	 * to the biggest maxDataCount.
+	 * @param x the new x value
+	 * @param y the new y value
+	 * @param scrollToEnd true => graphview will scroll to the end (maxX)
+	 * @param maxDataCount if max data count is reached, the oldest data value will be lost
+	 * @return false if the queue of this thread is full (8192 data points), the data point is dropped then
+	 * @throws UnsupportedOperationException if the data store is read-only
+	 */
+	public boolean postData(double x, double y, boolean scrollToEnd, int maxDataCount, boolean properScroll) {
+		checkWritable();
+		Stripe stripe = localStripe.get();
+		if (stripe.scrollToEnd != scrollToEnd || stripe.maxDataCount != maxDataCount || stripe.properScroll != properScroll) {
+			// offer publishes the settings with the data
+			stripe.scrollToEnd = scrollToEnd;
+			stripe.maxDataCount = maxDataCount;
+			stripe.properScroll = properScroll;
+		}
+		if (!stripe.queue.offer(x, y)) {
+			return false;
+		}
+		if (drainPosted.compareAndSet(false, true)) {
+			postDrain();
+		}
+		return true;
+	}
+
+	private void postDrain() {
+		getHandler().post(drain);
+	}
+
+	synchronized private Handler getHandler() {
+		if (handler == null) {
+			handler = new Handler(Looper.getMainLooper());
+		}
+		return handler;
+	}
+
+	/**
+	 * rejects data for a read-only store on the thread that adds it,
+	 * instead of failing later on the UI thread
+	 * @throws UnsupportedOperationException if the data store is read-only
+	 */
+	void checkWritable() {
+		GraphViewDataStore store = this.store;
+		if (store.isReadOnly()) {
+			throw new UnsupportedOperationException(store.getClass().getSimpleName() + " is read-only.");
+		}
+	}
+
+	/**
+	 * @return number of data points of postData that were dropped,
+	 * because a thread posted them after data with a bigger x was appended
+	 */
+	public int getLateDataCount() {
+		return lateDataCount;
+	}
+
+	synchronized private Stripe register() {
+		Stripe stripe = new Stripe();
+		Stripe[] current = stripes;
+		int alive = 0;
+		for (Stripe s : current) {
+			// forget finished threads
+			if (s.owner.isAlive() || !s.queue.isEmpty()) {
+				alive++;
+			}
+		}
+		Stripe[] next = new Stripe[alive + 1];
+		int i = 0;
+		for (Stripe s : current) {
+			if (s.owner.isAlive() || !s.queue.isEmpty()) {
+				next[i++] = s;
+			}
+		}
+		next[i] = stripe;
+		stripes = next;
+		return stripe;
+	}
+
+	/**
+	 * UI thread, appends the queued data
+	 */
+	private void drainQueue() {
+		Stripe[] stripes = this.stripes;
+		boolean empty = true;
+		for (Stripe s : stripes) {
+			empty &= s.queue.isEmpty();
+		}
+		if (empty) {
+			return;
+		}
+		if (drainX == null) {
+			drainX = new double[1024];
+			drainY = new double[1024];
+		}
+		if (store.isReadOnly()) {
+			// the store was replaced by resetData after the data was posted
+			for (Stripe s : stripes) {
+				while (s.queue.drain(drainX, drainY, drainX.length) > 0) {
+					// discard
+				}
+			}
+			return;
+		}
+		drainScrollToEnd = false;
+		drainMaxDataCount = 0;
+		drainProperScroll = false;
+		synchronized (store) {
+			if (stripes.length == 1) {
+				Stripe stripe = stripes[0];
+				int count;
+				while ((count = stripe.queue.drain(drainX, drainY, drainX.length)) > 0) {
+					store.append(drainX, drainY, 0, count);
+					stripe.drainedX = drainX[count - 1];
+				}
+				drained(stripe);
 			} else {
-				// we have to trim one data
-                newValues = Arrays.copyOfRange(values, 1, maxDataCount - 1);
-				// append new data
-				newValues[newValues.length - 1] = value;
+				boolean appended = merge(stripes, watermark(stripes));
+				postHeldBack(stripes);
+				if (!appended) {
+					return;
+				}
+			}
+			trim(drainMaxDataCount);
+		}
+		onDataAppended(drainScrollToEnd, drainProperScroll);
+	}
+
+	/**
+	 * data above the watermark stays queued until the other threads catch up.
+	 * Look again at the next frame, in case a thread ends without posting again.
+	 */
+	private void postHeldBack(Stripe[] stripes) {
+		for (Stripe s : stripes) {
+			if (!s.queue.isEmpty()) {
+				if (drainPosted.compareAndSet(false, true)) {
+					getHandler().postDelayed(drain, HELD_BACK_DELAY);
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * data of the stripe was appended, its settings apply
+	 */
+	private void drained(Stripe stripe) {
+		drainScrollToEnd |= stripe.scrollToEnd;
+		drainMaxDataCount = Math.max(drainMaxDataCount, stripe.maxDataCount);
+		drainProperScroll |= stripe.properScroll;
+	}
+
+	/**
+	 * the x values of a thread are sorted, so no thread will post an x
+	 * below its newest x, an idle thread not below the x last taken from it.
+	 * @return the smallest x that a live thread may still post
+	 */
+	static private double watermark(Stripe[] stripes) {
+		double watermark = Double.POSITIVE_INFINITY;
+		for (Stripe s : stripes) {
+			// an ended thread posts no more data, check that before the queue
+			if (s.owner.isAlive()) {
+				watermark = Math.min(watermark, s.queue.isEmpty() ? s.drainedX : s.queue.peekLastX());
+			}
+		}
+		return watermark;
+	}
+
+	/**
+	 * k-way merge of the queues by x, up to the watermark
+	 * @return false if no data was appended
+	 */
+	private boolean merge(Stripe[] stripes, double watermark) {
+		double lastX = store.size() > 0 ? store.getX(store.size() - 1) : Double.NEGATIVE_INFINITY;
+		boolean appended = false;
+		int count = 0;
+		while (true) {
+			Stripe next = null;
+			for (Stripe s : stripes) {
+				if (!s.queue.isEmpty() && (next == null || s.queue.peekX() < next.queue.peekX())) {
+					next = s;
+				}
+			}
+			if (next == null || next.queue.peekX() > watermark) {
+				break;
+			}
+			double x = next.queue.peekX();
+			double y = next.queue.peekY();
+			next.queue.skip();
+			next.drainedX = x;
+			if (x < lastX) {
+				lateDataCount++;
+				continue;
+			}
+			drained(next);
+			appended = true;
+			drainX[count] = x;
+			drainY[count] = y;
+			count++;
+			lastX = x;
+			if (count == drainX.length) {
+				store.append(drainX, drainY, 0, count);
+				count = 0;
 			}
-			values = newValues;
 		}
+		if (count > 0) {
+			store.append(drainX, drainY, 0, count);
+		}
+		return appended;
+	}
+
+	private void trim(int maxDataCount) {
+		if (store.size() > maxDataCount) {
+			// we have to trim the oldest data
+			store.removeFirst(store.size() - maxDataCount);
+		}
+	}
 
+	private void onDataAppended(boolean scrollToEnd, boolean properScroll) {
 		// update linked graph views
 		for (GraphView g : graphViews) {
 			if (scrollToEnd) {
@@ -144,10 +507,43 @@ public class GraphViewSeries {
                 } else {
                     g.scrollToEnd();
                 }
+			} else {
+				g.scheduleRedraw();
 			}
 		}
 	}
 
+	/**
+	 * index the y values, so the y bounds of any viewport are found in O(log n).
+	 * Use this for long series that are zoomed and scrolled.
+	 * @see GraphViewDataStore#setRangeIndexEnabled(boolean)
+	 */
+	public void setRangeIndexEnabled(boolean enabled) {
+		rangeIndexEnabled = enabled;
+		synchronized (store) {
+			store.setRangeIndexEnabled(enabled);
+		}
+	}
+
+	/**
+	 * keep pre-aggregated levels of the data, so zoomed out line graphs
+	 * draw about one bucket per pixel instead of all data points.
+	 * @see GraphViewDataStore#setLevelOfDetailEnabled(boolean)
+	 */
+	public void setLevelOfDetailEnabled(boolean enabled) {
+		levelOfDetailEnabled = enabled;
+		synchronized (store) {
+			store.setLevelOfDetailEnabled(enabled);
+		}
+	}
+
+	/**
+	 * @return the data store of this series
+	 */
+	public GraphViewDataStore getDataStore() {
+		return store;
+	}
+
 	/**
 	 * @return series styles. never null
 	 */
@@ -169,15 +565,53 @@ public class GraphViewSeries {
 	 * @param values new data
 	 */
 	public void resetData(GraphViewDataInterface[] values) {
-		this.values = values;
+		resetData(new ObjectDataStore(values));
+	}
+
+	/**
+	 * clears the current data and set the new.
+	 * redraws the graphview(s)
+	 * @param xs x values, sorted
+	 * @param ys y values
+	 */
+	public void resetData(double[] xs, double[] ys) {
+		resetData(new PrimitiveDataStore(xs, ys));
+	}
+
+	/**
+	 * clears the current data and set the new.
+	 * redraws the graphview(s).
+	 * If the new store is read-only, data that is still queued by postData is dropped.
+	 * @param store new data
+	 */
+	public void resetData(GraphViewDataStore store) {
+		if (rangeIndexEnabled) {
+			store.setRangeIndexEnabled(true);
+		}
+		if (levelOfDetailEnabled) {
+			store.setLevelOfDetailEnabled(true);
+		}
+		this.store = store;
+		for (GraphView g : graphViews) {
+			g.seriesDataReset(this);
+		}
+		redrawGraphViews();
+	}
+
+	/**
+	 * redraws the linked graph views at the next frame, after the data was changed
+	 * without scrolling
+	 */
+	void redrawGraphViews() {
 		for (GraphView g : graphViews) {
-			g.redrawAll();
+			g.scheduleRedraw();
 		}
 	}
 
     public GraphViewDataInterface getLastDataItem() {
-        if (this.values != null && this.values.length > 0) {
-            return this.values[this.values.length - 1];
+        GraphViewDataStore store = this.store;
+        if (store != null && store.size() > 0) {
+            return store.getDataItem(store.size() - 1);
         }
         return null;
     }
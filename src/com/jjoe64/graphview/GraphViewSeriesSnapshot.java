@@ -0,0 +1,238 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+package com.jjoe64.graphview;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import com.jjoe64.graphview.GraphViewSeries.GraphViewSeriesStyle;
+
+/**
+ * saves and restores a series in a compact binary format.
+ * Much faster than java serialization of the data objects,
+ * a restored series is read in large chunks straight into a {@link PrimitiveDataStore}.
+ *
+ * Format, big-endian:
+ * magic "GVSS", version (int), description length in bytes (int, -1 for null),
+ * description (UTF-8), color (int), thickness (int), data count (int),
+ * all x values (double), all y values (double).
+ *
+ * The ValueDependentColor of the style is not saved.
+ */
+public final class GraphViewSeriesSnapshot {
+	static private final int MAGIC = 0x47565353;
+	static private final int VERSION = 1;
+	/**
+	 * doubles per write buffer
+	 */
+	static private final int CHUNK_SIZE = 8192;
+	static private final Charset UTF8 = Charset.forName("UTF-8");
+
+	private GraphViewSeriesSnapshot() {
+	}
+
+	/**
+	 * writes the series to a file
+	 * @throws IOException if the file can't be written
+	 */
+	static public void write(GraphViewSeries series, File file) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			write(series, out.getChannel());
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * writes the series. The data is locked while it is written.
+	 * @throws IOException if the channel can't be written
+	 */
+	static public void write(GraphViewSeries series, WritableByteChannel channel) throws IOException {
+		byte[] description = series.description == null ? null : series.description.getBytes(UTF8);
+		synchronized (series.store) {
+			GraphViewDataStore store = series.store;
+			int size = store.size();
+
+			ByteBuffer header = ByteBuffer.allocate(24 + (description == null ? 0 : description.length));
+			header.putInt(MAGIC);
+			header.putInt(VERSION);
+			if (description == null) {
+				header.putInt(-1);
+			} else {
+				header.putInt(description.length);
+				header.put(description);
+			}
+			header.putInt(series.style.color);
+			header.putInt(series.style.thickness);
+			header.putInt(size);
+			header.flip();
+			writeFully(channel, header);
+
+			ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE * 8);
+			DoubleBuffer doubles = buffer.asDoubleBuffer();
+			for (int column = 0; column < 2; column++) {
+				for (int i = 0; i < size; i += CHUNK_SIZE) {
+					int end = Math.min(i + CHUNK_SIZE, size);
+					doubles.clear();
+					for (int j = i; j < end; j++) {
+						doubles.put(column == 0 ? store.getX(j) : store.getY(j));
+					}
+					buffer.clear();
+					buffer.limit(doubles.position() * 8);
+					writeFully(channel, buffer);
+				}
+			}
+		}
+	}
+
+	/**
+	 * reads a series from a file
+	 * @throws IOException if the file can't be read or is not a snapshot
+	 */
+	static public GraphViewSeries read(File file) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		try {
+			return read(in.getChannel());
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * reads a series
+	 * @return new series with a {@link PrimitiveDataStore}
+	 * @throws IOException if the channel can't be read or is not a snapshot
+	 */
+	static public GraphViewSeries read(ReadableByteChannel channel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(12);
+		readFully(channel, header);
+		if (header.getInt() != MAGIC) {
+			throw new IOException("not a series snapshot");
+		}
+		int version = header.getInt();
+		if (version != VERSION) {
+			throw new IOException("unsupported snapshot version " + version);
+		}
+		int length = header.getInt();
+		if (length < -1 || length > remaining(channel)) {
+			throw new IOException("invalid description length " + length);
+		}
+		String description = null;
+		if (length >= 0) {
+			description = new String(readBytes(channel, length), UTF8);
+		}
+
+		ByteBuffer styleAndSize = ByteBuffer.allocate(12);
+		readFully(channel, styleAndSize);
+		GraphViewSeriesStyle style = new GraphViewSeriesStyle(styleAndSize.getInt(), styleAndSize.getInt());
+		int size = styleAndSize.getInt();
+		if (size < 0 || size > remaining(channel) / 16) {
+			throw new IOException("invalid data count " + size);
+		}
+
+		// the size of a file is checked, other channels are read into growing arrays,
+		// so a wrong data count fails at the end of the data instead of allocating it at once
+		int capacity = channel instanceof FileChannel ? size : Math.min(size, CHUNK_SIZE);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE * 8);
+		DoubleBuffer doubles = buffer.asDoubleBuffer();
+		double[] xs = readColumn(channel, size, capacity, buffer, doubles);
+		double[] ys = readColumn(channel, size, capacity, buffer, doubles);
+		return new GraphViewSeries(description, style, new PrimitiveDataStore(xs, ys));
+	}
+
+	/**
+	 * reads one column in chunks
+	 * @param capacity initial length of the array, it grows up to size while the data is read
+	 * @param doubles view of the buffer
+	 */
+	static private double[] readColumn(ReadableByteChannel channel, int size, int capacity, ByteBuffer buffer, DoubleBuffer doubles) throws IOException {
+		double[] values = new double[capacity];
+		for (int i = 0; i < size; i += CHUNK_SIZE) {
+			int count = Math.min(CHUNK_SIZE, size - i);
+			if (i + count > values.length) {
+				values = Arrays.copyOf(values, (int) Math.min((long) values.length * 2, size));
+			}
+			buffer.clear();
+			buffer.limit(count * 8);
+			readFully(channel, buffer);
+			doubles.clear();
+			doubles.get(values, i, count);
+		}
+		return values;
+	}
+
+	/**
+	 * @return bytes left in a file, Long.MAX_VALUE for other channels
+	 */
+	static private long remaining(ReadableByteChannel channel) throws IOException {
+		if (channel instanceof FileChannel) {
+			FileChannel file = (FileChannel) channel;
+			return file.size() - file.position();
+		}
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * reads in chunks, so a wrong length fails at the end of the data
+	 * instead of allocating it at once
+	 */
+	static private byte[] readBytes(ReadableByteChannel channel, int length) throws IOException {
+		byte[] bytes = new byte[Math.min(length, CHUNK_SIZE)];
+		int read = 0;
+		while (read < length) {
+			if (read == bytes.length) {
+				bytes = Arrays.copyOf(bytes, (int) Math.min((long) bytes.length * 2, length));
+			}
+			ByteBuffer chunk = ByteBuffer.wrap(bytes, read, bytes.length - read);
+			readFully(channel, chunk);
+			read = bytes.length;
+		}
+		return bytes;
+	}
+
+	static private void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * fills the buffer and flips it
+	 */
+	static private void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				throw new EOFException("snapshot is truncated");
+			}
+		}
+		buffer.flip();
+	}
+}
@@ -0,0 +1,263 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+package com.jjoe64.graphview;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * pyramid of pre-aggregated levels of a store.
+ * Level k groups 2^k data points into one bucket and keeps the
+ * min and max of the bucket. Together with the first and last point
+ * a bucket is drawn with at most 4 points.
+ * Data points are numbered with a sequence that doesn't change when the
+ * oldest data is removed, so appending and removing only touch the
+ * last and first bucket of every level.
+ */
+class LevelOfDetail {
+	/**
+	 * smaller buckets are not worth the memory
+	 */
+	static final int MIN_SHIFT = 3;
+
+	/**
+	 * buckets of one level
+	 */
+	static private class Level {
+		final int shift;
+		/**
+		 * bucket number of entry 'offset'
+		 */
+		long firstBucket;
+		int offset;
+		int count;
+		double[] minY = new double[16];
+		double[] maxY = new double[16];
+		long[] minSeq = new long[16];
+		long[] maxSeq = new long[16];
+
+		Level(int shift) {
+			this.shift = shift;
+		}
+
+		/**
+		 * @param seq sequence number of the data point
+		 */
+		void add(long seq, double y) {
+			long bucket = seq >> shift;
+			if (count > 0 && bucket == firstBucket + count - 1) {
+				int i = offset + count - 1;
+				if (y < minY[i]) {
+					minY[i] = y;
+					minSeq[i] = seq;
+				}
+				if (y > maxY[i]) {
+					maxY[i] = y;
+					maxSeq[i] = seq;
+				}
+			} else {
+				push(bucket, y, seq, y, seq);
+			}
+		}
+
+		void push(long bucket, double min, long minAt, double max, long maxAt) {
+			if (count == 0) {
+				firstBucket = bucket;
+				offset = 0;
+			}
+			int i = offset + count;
+			if (i == minY.length) {
+				if (offset > 0) {
+					compact();
+				} else {
+					int capacity = minY.length * 2;
+					minY = Arrays.copyOf(minY, capacity);
+					maxY = Arrays.copyOf(maxY, capacity);
+					minSeq = Arrays.copyOf(minSeq, capacity);
+					maxSeq = Arrays.copyOf(maxSeq, capacity);
+				}
+				i = offset + count;
+			}
+			minY[i] = min;
+			minSeq[i] = minAt;
+			maxY[i] = max;
+			maxSeq[i] = maxAt;
+			count++;
+		}
+
+		/**
+		 * drops the buckets that contain only data before baseSeq
+		 */
+		void removeBefore(long baseSeq) {
+			while (count > 0 && ((firstBucket + 1) << shift) <= baseSeq) {
+				firstBucket++;
+				offset++;
+				count--;
+			}
+		}
+
+		private void compact() {
+			System.arraycopy(minY, offset, minY, 0, count);
+			System.arraycopy(maxY, offset, maxY, 0, count);
+			System.arraycopy(minSeq, offset, minSeq, 0, count);
+			System.arraycopy(maxSeq, offset, maxSeq, 0, count);
+			offset = 0;
+		}
+	}
+
+	private final GraphViewDataStore store;
+	private final List<Level> levels = new ArrayList<Level>();
+	/**
+	 * sequence number of index 0 of the store
+	 */
+	private long baseSeq;
+	private long nextSeq;
+	private boolean built;
+
+	LevelOfDetail(GraphViewDataStore store) {
+		this.store = store;
+	}
+
+	void onAppend(double y) {
+		if (!built) {
+			return;
+		}
+		long seq = nextSeq++;
+		for (int i = 0; i < levels.size(); i++) {
+			levels.get(i).add(seq, y);
+		}
+		addLevels();
+	}
+
+	void onRemoveFirst(int count) {
+		if (!built) {
+			return;
+		}
+		baseSeq += count;
+		for (int i = 0; i < levels.size(); i++) {
+			levels.get(i).removeBefore(baseSeq);
+		}
+	}
+
+	void invalidate() {
+		built = false;
+	}
+
+	/**
+	 * replaces the store range [start, end) by the coarsest level
+	 * that has still at least one bucket per pixel.
+	 * The range is extended to whole buckets.
+	 * @param width number of pixels
+	 * @param out cleared and filled with the points to draw
+	 * @return false if no level is coarse enough, out is not used then
+	 */
+	boolean reduce(int start, int end, float width, PrimitiveDataStore out) {
+		double pointsPerPixel = (end - start) / Math.max(width, 1f);
+		int shift = 31 - Integer.numberOfLeadingZeros((int) Math.min(pointsPerPixel, Integer.MAX_VALUE));
+		if (shift < MIN_SHIFT) {
+			return false;
+		}
+		build();
+		if (levels.isEmpty()) {
+			return false;
+		}
+		Level level = levels.get(Math.min(shift - MIN_SHIFT, levels.size() - 1));
+
+		out.clear();
+		long firstBucket = (baseSeq + start) >> level.shift;
+		long lastBucket = (baseSeq + end - 1) >> level.shift;
+		for (long b = firstBucket; b <= lastBucket; b++) {
+			int first = (int) (Math.max(b << level.shift, baseSeq) - baseSeq);
+			int last = (int) (Math.min((b + 1) << level.shift, nextSeq) - baseSeq) - 1;
+			int i = level.offset + (int) (b - level.firstBucket);
+			if (level.minSeq[i] < baseSeq || level.maxSeq[i] < baseSeq) {
+				// extreme was removed, search the rest of the bucket
+				int min = first;
+				int max = first;
+				for (int j = first + 1; j <= last; j++) {
+					double y = store.getY(j);
+					if (y < store.getY(min)) {
+						min = j;
+					}
+					if (y > store.getY(max)) {
+						max = j;
+					}
+				}
+				Downsampler.appendColumn(store, first, min, max, last, out);
+			} else {
+				Downsampler.appendColumn(store, first, (int) (level.minSeq[i] - baseSeq), (int) (level.maxSeq[i] - baseSeq), last, out);
+			}
+		}
+		return true;
+	}
+
+	private void build() {
+		if (built) {
+			return;
+		}
+		levels.clear();
+		baseSeq = 0;
+		nextSeq = store.size();
+		built = true;
+		addLevels();
+	}
+
+	/**
+	 * adds coarser levels as long as the top level has more than one bucket
+	 */
+	private void addLevels() {
+		if (levels.isEmpty()) {
+			if (nextSeq - baseSeq < (1 << MIN_SHIFT)) {
+				return;
+			}
+			// enough data for the first level
+			Level level = new Level(MIN_SHIFT);
+			for (long seq = baseSeq; seq < nextSeq; seq++) {
+				level.add(seq, store.getY((int) (seq - baseSeq)));
+			}
+			levels.add(level);
+		}
+		Level top = levels.get(levels.size() - 1);
+		while (top.count > 2) {
+			// merge pairs of buckets
+			Level level = new Level(top.shift + 1);
+			for (int j = 0; j < top.count; j++) {
+				int i = top.offset + j;
+				long bucket = (top.firstBucket + j) >> 1;
+				if (level.count > 0 && bucket == level.firstBucket + level.count - 1) {
+					int k = level.offset + level.count - 1;
+					if (top.minY[i] < level.minY[k]) {
+						level.minY[k] = top.minY[i];
+						level.minSeq[k] = top.minSeq[i];
+					}
+					if (top.maxY[i] > level.maxY[k]) {
+						level.maxY[k] = top.maxY[i];
+						level.maxSeq[k] = top.maxSeq[i];
+					}
+				} else {
+					level.push(bucket, top.minY[i], top.minSeq[i], top.maxY[i], top.maxSeq[i]);
+				}
+			}
+			levels.add(level);
+			top = level;
+		}
+	}
+}
@@ -30,13 +30,96 @@ import android.util.AttributeSet;
 
 import com.jjoe64.graphview.GraphViewSeries.GraphViewSeriesStyle;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Line Graph View. This draws a line chart.
  */
 public class LineGraphView extends GraphView {
+	/**
+	 * how the visible data is reduced before drawing
+	 */
+	public enum Downsampling {
+		/**
+		 * draw all data points
+		 */
+		NONE,
+		/**
+		 * Largest-Triangle-Three-Buckets, about one data point per pixel.
+		 * Keeps the shape of the line, but can skip single spikes.
+		 */
+		LTTB,
+		/**
+		 * first, last, min and max data point of every pixel column.
+		 * Looks exactly like drawing all data points, spikes are never lost.
+		 * At most 4 data points per pixel.
+		 */
+		M4
+	}
+
 	protected Paint paintBackground;
 	private boolean drawBackground;
     private Path poly;
+	private Downsampling downsampling = Downsampling.NONE;
+	private final PrimitiveDataStore downsampled = new PrimitiveDataStore();
+	private final PrimitiveDataStore levelOfDetail = new PrimitiveDataStore();
+	private int visibleDataCount;
+	private int drawnDataCount;
+	/**
+	 * the gradient of the line, created again only if the colors or the height change
+	 */
+	private LinearGradient gradient;
+	private int[] gradientColors;
+	private int gradientHeight;
+	/**
+	 * screen coordinates of the drawn points of every series (x0, y0, x1, y1, ...).
+	 * Projected once per frame, the line and the background both use them.
+	 * Kept between frames.
+	 */
+	private final List<float[]> projections = new ArrayList<float[]>();
+	private float[] backgroundPoints;
+	/**
+	 * screen coordinates of the drawn data of the current series (x0, y0, x1, y1, ...).
+	 * drawSeries projects the data before it calls
+	 * {@link #drawShadedBackground(Canvas, GraphViewDataStore, float, float, float, double, double, double, double, float)},
+	 * the first projectionSize points are valid.
+	 * projectionSize is 0 while the series is drawn with cached paths.
+	 */
+	protected float[] projection;
+	protected int projectionSize;
+	/**
+	 * the data drawSeries is drawing, with its projection or its cached paths
+	 */
+	private GraphViewDataStore drawnValues;
+	private PathCache drawnPaths;
+	private boolean pathCaching;
+	private final List<PathCache> pathCaches = new ArrayList<PathCache>();
+
+	/**
+	 * the line and the background of a series as paths, x relative to originX.
+	 * They cover the viewport and one more viewport width on each side,
+	 * scrolling inside that range only translates them.
+	 */
+	static private class PathCache {
+		final Path line = new Path();
+		final Path background = new Path();
+		GraphViewDataStore store;
+		int version;
+		double originX;
+		double scaleX;
+		double minY;
+		double diffY;
+		float graphheight;
+		float border;
+		boolean drawBackground;
+		/**
+		 * covered range of the viewport start and end
+		 */
+		double fromX;
+		double toX;
+	}
 
     public LineGraphView(Context context, AttributeSet attrs) {
         this(context, attrs, false);
@@ -68,45 +151,290 @@ public class LineGraphView extends GraphView {
 
 	@Override
 	public void drawSeries(Canvas canvas, GraphViewDataInterface[] values, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart, GraphViewSeriesStyle style, int[] colors) {
+		drawSeries(canvas, new GraphViewDataWindow(new ObjectDataStore(values), 0, values.length), graphwidth, graphheight, border, minX, minY, diffX, diffY, horstart, style, colors);
+	}
 
-		double lastEndY = 0;
-		double lastEndX = 0;
+	@Override
+	public void drawSeries(Canvas canvas, GraphViewDataWindow window, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart, GraphViewSeriesStyle style, int[] colors) {
+		if (window.seriesIndex <= 0) {
+			// first series of a frame
+			visibleDataCount = 0;
+			drawnDataCount = 0;
+		}
+		GraphViewDataStore values = downsample(window, minX, diffX, graphwidth);
+		visibleDataCount += window.size();
+		drawnDataCount += values.size();
+
+		int size = values.size();
+		PathCache paths = null;
+		if (pathCaching && values == window) {
+			paths = getPaths(window, graphwidth, graphheight, border, minX, minY, diffX, diffY);
+			projectionSize = 0;
+		} else {
+			projection = getProjection(window.seriesIndex, size);
+			projectionSize = size;
+			project(values, projection, graphwidth, graphheight, border, minX, minY, diffX, diffY, horstart);
+		}
 
         // draw background
+		drawnValues = values;
+		drawnPaths = paths;
         drawShadedBackground(canvas, values, graphwidth, graphheight, border, minX, minY, diffX, diffY, horstart);
+		drawnValues = null;
+		drawnPaths = null;
 
         final Shader temp = paint.getShader();
 
 		// draw data
 		paint.setStrokeWidth(style.thickness);
         if (colors != null) {
-            paint.setShader(new LinearGradient(0, 0, 0, getHeight(), colors, null, Shader.TileMode.MIRROR));
+            paint.setShader(getGradient(colors));
         } else {
             paint.setColor(style.color);
         }
 
-		for (int i = 0; i < values.length; i++) {
-			double valY = values[i].getY() - minY;
-			double ratY = valY / diffY;
-			double y = graphheight * ratY;
+		if (paths != null) {
+			canvas.save();
+			translate(canvas, paths, graphwidth, minX, diffX, horstart);
+			Paint.Style paintStyle = paint.getStyle();
+			paint.setStyle(Paint.Style.STROKE);
+			canvas.drawPath(paths.line, paint);
+			paint.setStyle(paintStyle);
+			canvas.restore();
+		} else if (size > 1) {
+			// drawLines draws the pairs (p0, p1), (p2, p3), ..., the second call (p1, p2), (p3, p4), ...
+			canvas.drawLines(projection, 0, (size / 2) * 4, paint);
+			canvas.drawLines(projection, 2, ((size - 1) / 2) * 4, paint);
+		}
 
-			double valX = values[i].getX() - minX;
-			double ratX = valX / diffX;
-			double x = graphwidth * ratX;
+        paint.setShader(temp);
+	}
 
-			if (i > 0) {
-				float startX = (float) lastEndX + (horstart + 1);
-				float startY = (float) (border - lastEndY) + graphheight;
-				float endX = (float) x + (horstart + 1);
-				float endY = (float) (border - y) + graphheight;
+	/**
+	 * @return the cached paths of the series, they are built again
+	 * only if the data, the zoom or the y scale changed.
+	 */
+	private PathCache getPaths(GraphViewDataWindow window, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY) {
+		PathCache cache = getPathCache(window.seriesIndex);
+		GraphViewDataStore store = window.getStore();
+		double scaleX = graphwidth / diffX;
+		if (cache.store != store || cache.version != store.getVersion() || cache.scaleX != scaleX
+				|| cache.minY != minY || cache.diffY != diffY
+				|| cache.graphheight != graphheight || cache.border != border
+				|| cache.drawBackground != drawBackground
+				|| minX < cache.fromX || minX + diffX > cache.toX) {
+			buildPaths(cache, store, graphwidth, graphheight, border, minX, minY, diffX, diffY);
+		}
+		return cache;
+	}
 
-				canvas.drawLine(startX, startY, endX, endY, paint);
+	/**
+	 * clips the canvas to the graph and moves the cached paths to the viewport
+	 */
+	static private void translate(Canvas canvas, PathCache paths, float graphwidth, double minX, double diffX, float horstart) {
+		canvas.clipRect(horstart, 0, horstart + graphwidth + 2, canvas.getHeight());
+		canvas.translate((float) ((paths.originX - minX) * graphwidth / diffX) + horstart + 1, 0);
+	}
+
+	@Override
+	protected void onSeriesRemoved(int index) {
+		if (index < projections.size()) {
+			projections.remove(index);
+		}
+		if (index < pathCaches.size()) {
+			pathCaches.remove(index);
+		}
+	}
+
+	@Override
+	protected void onSeriesDataReset(int index) {
+		if (index < pathCaches.size()) {
+			pathCaches.set(index, null);
+		}
+	}
+
+	private PathCache getPathCache(int seriesIndex) {
+		int index = Math.max(seriesIndex, 0);
+		while (pathCaches.size() <= index) {
+			pathCaches.add(null);
+		}
+		PathCache cache = pathCaches.get(index);
+		if (cache == null) {
+			cache = new PathCache();
+			pathCaches.set(index, cache);
+		}
+		return cache;
+	}
+
+	private void buildPaths(PathCache cache, GraphViewDataStore store, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY) {
+		double scaleX = graphwidth / diffX;
+		double scaleY = graphheight / diffY;
+		float offsetY = border + graphheight;
+		Path line = cache.line;
+		Path background = cache.background;
+		line.rewind();
+		background.rewind();
+
+		synchronized (store) {
+			// the viewport and one width on each side, plus one point more for nice scrolling
+			int size = store.size();
+			int from = store.ceilingIndex(minX - diffX);
+			if (from > 0) {
+				from--;
 			}
-			lastEndY = y;
-			lastEndX = x;
+			int to = Math.min(store.higherIndex(minX + 2 * diffX) + 1, size);
+
+			float firstX = 0;
+			float firstY = 0;
+			float x = 0;
+			for (int i = from; i < to; i++) {
+				x = (float) ((store.getX(i) - minX) * scaleX);
+				float y = offsetY - (float) ((store.getY(i) - minY) * scaleY);
+				if (i == from) {
+					firstX = x;
+					firstY = y;
+					line.moveTo(x, y);
+					if (drawBackground) {
+						background.moveTo(x, y + 2);
+					}
+				} else {
+					line.lineTo(x, y);
+					if (drawBackground) {
+						background.lineTo(x, y + 2);
+					}
+				}
+			}
+			if (drawBackground && to > from) {
+				background.lineTo(x, offsetY);
+				background.lineTo(firstX, offsetY);
+				background.lineTo(firstX, firstY + 2);
+				background.close();
+			}
+
+			cache.store = store;
+			cache.version = store.getVersion();
+			cache.fromX = from == 0 ? Double.NEGATIVE_INFINITY : minX - diffX;
+			cache.toX = to == size ? Double.POSITIVE_INFINITY : minX + 2 * diffX;
 		}
+		cache.originX = minX;
+		cache.scaleX = scaleX;
+		cache.minY = minY;
+		cache.diffY = diffY;
+		cache.graphheight = graphheight;
+		cache.border = border;
+		cache.drawBackground = drawBackground;
+	}
 
-        paint.setShader(temp);
+	/**
+	 * @param seriesIndex -1 if unknown
+	 * @param size number of points
+	 * @return the projection buffer of the series
+	 */
+	private float[] getProjection(int seriesIndex, int size) {
+		int index = Math.max(seriesIndex, 0);
+		while (projections.size() <= index) {
+			projections.add(null);
+		}
+		float[] buffer = projections.get(index);
+		if (buffer == null || buffer.length < 2 * size) {
+			buffer = new float[Math.max(2 * size, buffer == null ? 0 : buffer.length * 3 / 2)];
+			projections.set(index, buffer);
+		}
+		return buffer;
+	}
+
+	/**
+	 * transforms the data to screen coordinates
+	 * @param points filled with x0, y0, x1, y1, ...
+	 */
+	static private void project(GraphViewDataStore values, float[] points, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart) {
+		double scaleX = graphwidth / diffX;
+		double scaleY = graphheight / diffY;
+		float offsetX = horstart + 1;
+		float offsetY = border + graphheight;
+		int size = values.size();
+		for (int i = 0, j = 0; i < size; i++) {
+			points[j++] = (float) ((values.getX(i) - minX) * scaleX) + offsetX;
+			points[j++] = offsetY - (float) ((values.getY(i) - minY) * scaleY);
+		}
+	}
+
+	private LinearGradient getGradient(int[] colors) {
+		int height = getHeight();
+		if (gradient == null || height != gradientHeight || !Arrays.equals(colors, gradientColors)) {
+			gradient = new LinearGradient(0, 0, 0, height, colors, null, Shader.TileMode.MIRROR);
+			gradientColors = colors.clone();
+			gradientHeight = height;
+		}
+		return gradient;
+	}
+
+	/**
+	 * @return number of visible data points divided by the number of drawn data points
+	 * in the last frame. 1 if nothing was reduced.
+	 */
+	public float getDownsamplingRatio() {
+		if (drawnDataCount == 0) {
+			return 1f;
+		}
+		return (float) visibleDataCount / drawnDataCount;
+	}
+
+	public Downsampling getDownsampling() {
+		return downsampling;
+	}
+
+	/**
+	 * reduce the visible data before drawing, see {@link Downsampling}.
+	 * Useful if there are much more data points than pixels.
+	 * @param downsampling the algorithm, default is NONE
+	 */
+	public void setDownsampling(Downsampling downsampling) {
+		this.downsampling = downsampling;
+	}
+
+	public boolean isPathCaching() {
+		return pathCaching;
+	}
+
+	/**
+	 * keep the line and the background as paths between frames.
+	 * Scrolling then only moves the paths, they are built again if the data,
+	 * the zoom or the y scale change. Use it with manual y axis bounds,
+	 * otherwise the y scale can change while scrolling.
+	 * Not used while the data is reduced by downsampling or a level of detail.
+	 * @param pathCaching default false
+	 */
+	public void setPathCaching(boolean pathCaching) {
+		this.pathCaching = pathCaching;
+		if (!pathCaching) {
+			pathCaches.clear();
+		}
+	}
+
+	/**
+	 * @return the data to draw, the window itself if it is not reduced
+	 */
+	private GraphViewDataStore downsample(GraphViewDataWindow window, double minX, double diffX, float graphwidth) {
+		// zoomed out, a pre-aggregated level has already about 4 points per pixel
+		GraphViewDataStore values = getLevelOfDetail(window, graphwidth, levelOfDetail);
+		int width = Math.max(3, (int) graphwidth);
+		switch (downsampling) {
+		case LTTB:
+			if (values.size() <= width) {
+				return values;
+			}
+			Downsampler.lttb(values, width, downsampled);
+			return downsampled;
+		case M4:
+			if (values.size() <= 4 * width) {
+				return values;
+			}
+			Downsampler.m4(values, minX, diffX, graphwidth, downsampled);
+			return downsampled;
+		default:
+			return values;
+		}
 	}
 
 	public int getBackgroundColor() {
@@ -129,50 +457,78 @@ public class LineGraphView extends GraphView {
 		this.drawBackground = drawBackground;
 	}
 
+    /**
+     * @deprecated not called by drawSeries anymore, override
+     * {@link #drawShadedBackground(Canvas, GraphViewDataStore, float, float, float, double, double, double, double, float)}
+     */
+    @Deprecated
     protected void drawShadedBackground(Canvas canvas, GraphViewDataInterface[] values, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart) {
+        drawShadedBackground(canvas, new ObjectDataStore(values), graphwidth, graphheight, border, minX, minY, diffX, diffY, horstart);
+    }
 
-        if (drawBackground) {
-
-            if (poly == null) {
-                poly = new Path();
+    /**
+     * draws the background under the line, drawSeries calls this for every series.
+     * While a series is drawn, {@link #projection} holds the screen coordinates of the values.
+     * @param values the drawn data
+     */
+    protected void drawShadedBackground(Canvas canvas, GraphViewDataStore values, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart) {
+        if (!drawBackground) {
+            return;
+        }
+        if (values == drawnValues && drawnPaths != null) {
+            canvas.save();
+            translate(canvas, drawnPaths, graphwidth, minX, diffX, horstart);
+            canvas.drawPath(drawnPaths.background, paintBackground);
+            canvas.restore();
+        } else if (values == drawnValues) {
+            fillBackground(canvas, projection, projectionSize, graphheight, border);
+        } else {
+            int size = values.size();
+            if (backgroundPoints == null || backgroundPoints.length < 2 * size) {
+                backgroundPoints = new float[2 * size];
             }
+            project(values, backgroundPoints, graphwidth, graphheight, border, minX, minY, diffX, diffY, horstart);
+            fillBackground(canvas, backgroundPoints, size, graphheight, border);
+        }
+    }
 
-            poly.reset();
+    /**
+     * @param points screen coordinates x0, y0, x1, y1, ...
+     * @param size number of points
+     */
+    private void fillBackground(Canvas canvas, float[] points, int size, float graphheight, float border) {
+        if (poly == null) {
+            poly = new Path();
+        }
 
-            float startY = graphheight + border;
-            float initialX = 0;
-            float initialY = 0;
-            float endX = 0;
-            float endY;
-            double x;
-            double y;
-            float tempX;
+        poly.reset();
 
-            for (int i = 0; i < values.length; i++) {
+        float startY = graphheight + border;
+        float initialX = 0;
+        float initialY = 0;
+        float endX = 0;
+        float endY;
 
-                y = graphheight * ((values[i].getY() - minY) / diffY);
-                x = graphwidth * ((values[i].getX() - minX) / diffX);
+        for (int i = 0; i < size; i++) {
 
-                tempX = (float)x;
-                endX = tempX + (horstart + 1);
-                endY = (float) (border - y) + graphheight + 2;
+            endX = points[2 * i];
+            endY = points[2 * i + 1] + 2;
 
-                if (i == 0) {
-                    initialX = endX;
-                    initialY = endY;
-                    poly.moveTo(endX, endY);
-                } else {
-                    poly.lineTo(endX, endY);
-                }
+            if (i == 0) {
+                initialX = endX;
+                initialY = endY;
+                poly.moveTo(endX, endY);
+            } else {
+                poly.lineTo(endX, endY);
             }
+        }
 
-            poly.lineTo(endX, startY);
-            poly.lineTo(initialX, startY);
-            poly.lineTo(initialX, initialY);
-            poly.close();
+        poly.lineTo(endX, startY);
+        poly.lineTo(initialX, startY);
+        poly.lineTo(initialX, initialY);
+        poly.close();
 
-            canvas.drawPath(poly, paintBackground);
-        }
+        canvas.drawPath(poly, paintBackground);
     }
 
     protected void drawShadedBackground(Canvas canvas, GraphViewDataInterface[] values, Path path, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart) {
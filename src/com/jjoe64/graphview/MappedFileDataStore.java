@@ -0,0 +1,148 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+package com.jjoe64.graphview;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * read-only data store over a file of packed x/y doubles
+ * (x0, y0, x1, y1, ...), sorted by x.
+ * The file is memory-mapped in chunks when they are first accessed,
+ * the data is never copied to the heap. Only the pages that are
+ * read (the viewport and the binary search) are loaded by the system,
+ * so very long recordings open instantly.
+ * Close the store if it is not used anymore.
+ */
+public class MappedFileDataStore extends GraphViewDataStore implements Closeable {
+	/**
+	 * 2^22 data points = 64 MB per chunk
+	 */
+	static private final int CHUNK_SHIFT = 22;
+	static private final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+	static private final int BYTES_PER_DATA = 16;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final long offset;
+	private final ByteOrder order;
+	private final int size;
+	private final DoubleBuffer[] chunks;
+	private double minY = Double.NaN;
+	private double maxY = Double.NaN;
+
+	/**
+	 * @param file big-endian packed x/y doubles
+	 * @throws IOException if the file can't be opened
+	 */
+	public MappedFileDataStore(File file) throws IOException {
+		this(file, 0, ByteOrder.BIG_ENDIAN);
+	}
+
+	/**
+	 * @param file packed x/y doubles
+	 * @param offset position of the first data point in the file, in bytes
+	 * @param order byte order of the doubles
+	 * @throws IOException if the file can't be opened
+	 */
+	public MappedFileDataStore(File file, long offset, ByteOrder order) throws IOException {
+		this.file = new RandomAccessFile(file, "r");
+		this.channel = this.file.getChannel();
+		this.offset = offset;
+		this.order = order;
+		long count = (channel.size() - offset) / BYTES_PER_DATA;
+		if (count > Integer.MAX_VALUE) {
+			this.file.close();
+			throw new IOException("too many data points: " + count);
+		}
+		this.size = (int) Math.max(count, 0);
+		this.chunks = new DoubleBuffer[(size + CHUNK_MASK) >>> CHUNK_SHIFT];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public double getX(int index) {
+		return chunk(index).get((index & CHUNK_MASK) << 1);
+	}
+
+	@Override
+	public double getY(int index) {
+		return chunk(index).get(((index & CHUNK_MASK) << 1) + 1);
+	}
+
+	/**
+	 * the data doesn't change, so the extremes are only searched once
+	 */
+	@Override
+	public double getMinY() {
+		if (Double.isNaN(minY)) {
+			minY = super.getMinY();
+		}
+		return minY;
+	}
+
+	@Override
+	public double getMaxY() {
+		if (Double.isNaN(maxY)) {
+			maxY = super.getMaxY();
+		}
+		return maxY;
+	}
+
+	/**
+	 * unmapping is done by the garbage collector, but the file is closed
+	 */
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+
+	private DoubleBuffer chunk(int index) {
+		int i = index >>> CHUNK_SHIFT;
+		DoubleBuffer chunk = chunks[i];
+		if (chunk == null) {
+			chunk = map(i);
+		}
+		return chunk;
+	}
+
+	synchronized private DoubleBuffer map(int i) {
+		if (chunks[i] == null) {
+			long first = (long) i << CHUNK_SHIFT;
+			long count = Math.min(1L << CHUNK_SHIFT, size - first);
+			try {
+				chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + first * BYTES_PER_DATA, count * BYTES_PER_DATA)
+						.order(order).asDoubleBuffer();
+			} catch (IOException e) {
+				throw new IllegalStateException("could not map chunk " + i, e);
+			}
+		}
+		return chunks[i];
+	}
+}
@@ -0,0 +1,151 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+package com.jjoe64.graphview;
+
+import java.util.Arrays;
+
+/**
+ * adapter for data given as {@link GraphViewDataInterface} objects.
+ * The objects are kept, so {@link ValueDependentColor} gets
+ * the original instances.
+ */
+class ObjectDataStore extends GraphViewDataStore {
+	private GraphViewDataInterface[] values;
+	private int size;
+	private double minY = Double.POSITIVE_INFINITY;
+	private double maxY = Double.NEGATIVE_INFINITY;
+	private boolean extremesValid;
+	/**
+	 * false while values is the array of the caller
+	 */
+	private boolean copied;
+
+	/**
+	 * the array is not copied until data is appended
+	 */
+	ObjectDataStore(GraphViewDataInterface[] values) {
+		this.values = values;
+		this.size = values.length;
+	}
+
+	@Override
+	public double getMinY() {
+		updateExtremes();
+		return minY;
+	}
+
+	@Override
+	public double getMaxY() {
+		updateExtremes();
+		return maxY;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public double getX(int index) {
+		return values[index].getX();
+	}
+
+	@Override
+	public double getY(int index) {
+		return values[index].getY();
+	}
+
+	@Override
+	public GraphViewDataInterface getDataItem(int index) {
+		return values[index];
+	}
+
+	@Override
+	public boolean isReadOnly() {
+		return false;
+	}
+
+	@Override
+	public void append(double x, double y) {
+		append(new GraphView.GraphViewData(x, y));
+	}
+
+	@Override
+	public void append(GraphViewDataInterface value) {
+		if (size == values.length) {
+			// the first growth copies, so the array of the caller is never modified
+			values = Arrays.copyOf(values, Math.max(size * 2, 16));
+			copied = true;
+		}
+		values[size++] = value;
+		includeExtremes(value.getY());
+		onDataAppended(value.getY());
+	}
+
+	@Override
+	public void removeFirst(int count) {
+		count = Math.min(count, size);
+		invalidateExtremes(0, count);
+		if (values.length > 0 && !copied) {
+			// never modify the array of the caller
+			values = Arrays.copyOf(values, values.length);
+			copied = true;
+		}
+		System.arraycopy(values, count, values, 0, size - count);
+		Arrays.fill(values, size - count, size, null);
+		size -= count;
+		onDataRemoved(count);
+	}
+
+	@Override
+	public GraphViewDataInterface[] toDataArray(int start, int end) {
+		return Arrays.copyOfRange(values, start, end);
+	}
+
+	private void updateExtremes() {
+		if (!extremesValid) {
+			minY = super.getMinY();
+			maxY = super.getMaxY();
+			extremesValid = true;
+		}
+	}
+
+	/**
+	 * the extremes only have to be searched again, if one of them gets removed
+	 */
+	private void invalidateExtremes(int start, int end) {
+		if (extremesValid) {
+			for (int i = start; i < end; i++) {
+				double y = values[i].getY();
+				if (y <= minY || y >= maxY) {
+					extremesValid = false;
+					break;
+				}
+			}
+		}
+	}
+
+	private void includeExtremes(double y) {
+		if (extremesValid) {
+			if (y < minY) minY = y;
+			if (y > maxY) maxY = y;
+		}
+	}
+}
@@ -0,0 +1,186 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+package com.jjoe64.graphview;
+
+import java.util.Arrays;
+
+/**
+ * data store with parallel primitive x/y columns.
+ * No object per data point, use this for large series.
+ */
+public class PrimitiveDataStore extends GraphViewDataStore {
+	private double[] xs;
+	private double[] ys;
+	private int size;
+	private double minY = Double.POSITIVE_INFINITY;
+	private double maxY = Double.NEGATIVE_INFINITY;
+	private boolean extremesValid;
+	/**
+	 * false while the columns are the arrays of the caller
+	 */
+	private boolean copied;
+
+	public PrimitiveDataStore() {
+		this(16);
+	}
+
+	/**
+	 * @param initialCapacity the columns grow automatically if needed
+	 */
+	public PrimitiveDataStore(int initialCapacity) {
+		xs = new double[Math.max(initialCapacity, 1)];
+		ys = new double[xs.length];
+		copied = true;
+	}
+
+	/**
+	 * the arrays are used directly, they are copied before the data is changed,
+	 * so the arrays of the caller are never modified.
+	 * @param xs x values, sorted
+	 * @param ys y values, same length as xs
+	 */
+	public PrimitiveDataStore(double[] xs, double[] ys) {
+		if (xs.length != ys.length) {
+			throw new IllegalArgumentException("xs and ys must have the same length.");
+		}
+		this.xs = xs;
+		this.ys = ys;
+		this.size = xs.length;
+	}
+
+	@Override
+	public double getMinY() {
+		updateExtremes();
+		return minY;
+	}
+
+	@Override
+	public double getMaxY() {
+		updateExtremes();
+		return maxY;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public double getX(int index) {
+		return xs[index];
+	}
+
+	@Override
+	public double getY(int index) {
+		return ys[index];
+	}
+
+	@Override
+	public boolean isReadOnly() {
+		return false;
+	}
+
+	@Override
+	public void append(double x, double y) {
+		ensureCapacity(size + 1);
+		xs[size] = x;
+		ys[size] = y;
+		size++;
+		includeExtremes(y);
+		onDataAppended(y);
+	}
+
+	@Override
+	public void append(double[] xs, double[] ys, int offset, int count) {
+		ensureCapacity(size + count);
+		System.arraycopy(xs, offset, this.xs, size, count);
+		System.arraycopy(ys, offset, this.ys, size, count);
+		size += count;
+		for (int i = offset; i < offset + count; i++) {
+			includeExtremes(ys[i]);
+			onDataAppended(ys[i]);
+		}
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > xs.length) {
+			capacity = Math.max(capacity, Math.max(xs.length * 2, 16));
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+			copied = true;
+		}
+	}
+
+	/**
+	 * removes all data, the columns are kept for reuse
+	 */
+	public void clear() {
+		size = 0;
+		minY = Double.POSITIVE_INFINITY;
+		maxY = Double.NEGATIVE_INFINITY;
+		extremesValid = true;
+		onDataChanged();
+	}
+
+	@Override
+	public void removeFirst(int count) {
+		count = Math.min(count, size);
+		invalidateExtremes(0, count);
+		if (!copied) {
+			// never modify the arrays of the caller
+			xs = Arrays.copyOf(xs, xs.length);
+			ys = Arrays.copyOf(ys, ys.length);
+			copied = true;
+		}
+		System.arraycopy(xs, count, xs, 0, size - count);
+		System.arraycopy(ys, count, ys, 0, size - count);
+		size -= count;
+		onDataRemoved(count);
+	}
+
+	private void updateExtremes() {
+		if (!extremesValid) {
+			minY = super.getMinY();
+			maxY = super.getMaxY();
+			extremesValid = true;
+		}
+	}
+
+	/**
+	 * the extremes only have to be searched again, if one of them gets removed
+	 */
+	private void invalidateExtremes(int start, int end) {
+		if (extremesValid) {
+			for (int i = start; i < end; i++) {
+				if (ys[i] <= minY || ys[i] >= maxY) {
+					extremesValid = false;
+					break;
+				}
+			}
+		}
+	}
+
+	private void includeExtremes(double y) {
+		if (extremesValid) {
+			if (y < minY) minY = y;
+			if (y > maxY) maxY = y;
+		}
+	}
+}
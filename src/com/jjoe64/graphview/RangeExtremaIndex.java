@@ -0,0 +1,180 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+package com.jjoe64.graphview;
+
+/**
+ * segment tree over the y values of a store, answers
+ * min/max of an index range in O(log n).
+ * The leaves are used circularly: removing the oldest data only moves
+ * the base, appended data reuses the leaves of removed data.
+ * The tree is built on the first query and grows when the store
+ * gets bigger than the number of leaves.
+ */
+class RangeExtremaIndex {
+	private final GraphViewDataStore store;
+	private double[] min;
+	private double[] max;
+	private int leafCount;
+	/**
+	 * leaf position of index 0 of the store
+	 */
+	private int base;
+	private int size;
+	private boolean built;
+
+	RangeExtremaIndex(GraphViewDataStore store) {
+		this.store = store;
+	}
+
+	/**
+	 * a data point was appended to the store
+	 */
+	void onAppend(double y) {
+		if (!built) {
+			return;
+		}
+		if (size == leafCount) {
+			// full, rebuild with more leaves on the next query
+			built = false;
+			return;
+		}
+		set(leaf(size), y);
+		size++;
+	}
+
+	/**
+	 * the oldest data points were removed from the store
+	 */
+	void onRemoveFirst(int count) {
+		if (!built) {
+			return;
+		}
+		count = Math.min(count, size);
+		for (int i = 0; i < count; i++) {
+			// clear the leaf, so it never counts in a query that wraps over it
+			set(leaf(i), Double.NaN);
+		}
+		base = leaf(count);
+		size -= count;
+	}
+
+	/**
+	 * the data changed completely
+	 */
+	void invalidate() {
+		built = false;
+	}
+
+	/**
+	 * @return min y of the store range [start, end)
+	 */
+	double getMinY(int start, int end) {
+		build();
+		double result;
+		int from = leaf(start);
+		int count = end - start;
+		if (from + count <= leafCount) {
+			result = query(min, from, from + count, false);
+		} else {
+			result = Math.min(query(min, from, leafCount, false), query(min, 0, from + count - leafCount, false));
+		}
+		return result;
+	}
+
+	/**
+	 * @return max y of the store range [start, end)
+	 */
+	double getMaxY(int start, int end) {
+		build();
+		double result;
+		int from = leaf(start);
+		int count = end - start;
+		if (from + count <= leafCount) {
+			result = query(max, from, from + count, true);
+		} else {
+			result = Math.max(query(max, from, leafCount, true), query(max, 0, from + count - leafCount, true));
+		}
+		return result;
+	}
+
+	private void build() {
+		if (built) {
+			return;
+		}
+		size = store.size();
+		leafCount = 16;
+		while (leafCount < size) {
+			leafCount *= 2;
+		}
+		if (min == null || min.length != 2 * leafCount) {
+			min = new double[2 * leafCount];
+			max = new double[2 * leafCount];
+		}
+		base = 0;
+		for (int i = 0; i < leafCount; i++) {
+			double y = i < size ? store.getY(i) : Double.NaN;
+			min[leafCount + i] = Double.isNaN(y) ? Double.POSITIVE_INFINITY : y;
+			max[leafCount + i] = Double.isNaN(y) ? Double.NEGATIVE_INFINITY : y;
+		}
+		for (int i = leafCount - 1; i > 0; i--) {
+			min[i] = Math.min(min[2 * i], min[2 * i + 1]);
+			max[i] = Math.max(max[2 * i], max[2 * i + 1]);
+		}
+		built = true;
+	}
+
+	/**
+	 * @param index store index
+	 * @return leaf position
+	 */
+	private int leaf(int index) {
+		int leaf = base + index;
+		return leaf >= leafCount ? leaf - leafCount : leaf;
+	}
+
+	/**
+	 * sets a leaf and updates its parents. NaN clears the leaf.
+	 */
+	private void set(int leaf, double y) {
+		int i = leafCount + leaf;
+		min[i] = Double.isNaN(y) ? Double.POSITIVE_INFINITY : y;
+		max[i] = Double.isNaN(y) ? Double.NEGATIVE_INFINITY : y;
+		for (i >>= 1; i > 0; i >>= 1) {
+			min[i] = Math.min(min[2 * i], min[2 * i + 1]);
+			max[i] = Math.max(max[2 * i], max[2 * i + 1]);
+		}
+	}
+
+	/**
+	 * bottom-up query of the leaves [from, to)
+	 */
+	private double query(double[] tree, int from, int to, boolean largest) {
+		double result = largest ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+		for (int l = from + leafCount, r = to + leafCount; l < r; l >>= 1, r >>= 1) {
+			if ((l & 1) == 1) {
+				result = largest ? Math.max(result, tree[l++]) : Math.min(result, tree[l++]);
+			}
+			if ((r & 1) == 1) {
+				result = largest ? Math.max(result, tree[--r]) : Math.min(result, tree[--r]);
+			}
+		}
+		return result;
+	}
+}
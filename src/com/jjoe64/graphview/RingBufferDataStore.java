@@ -0,0 +1,195 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+package com.jjoe64.graphview;
+
+/**
+ * fixed-capacity data store for realtime graphs.
+ * Appending and evicting data are constant time and never allocate.
+ * If the store is full, appending drops the oldest data point.
+ * Index 0 is always the oldest data point.
+ * The y extremes are tracked with monotonic deques while data is
+ * appended and evicted, so {@link #getMinY()} and {@link #getMaxY()} are O(1).
+ */
+public class RingBufferDataStore extends GraphViewDataStore {
+	private final double[] xs;
+	private final double[] ys;
+	private int start;
+	private int size;
+	private final ExtremaDeque minDeque;
+	private final ExtremaDeque maxDeque;
+
+	/**
+	 * @param capacity max number of data points
+	 */
+	public RingBufferDataStore(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be > 0");
+		}
+		xs = new double[capacity];
+		ys = new double[capacity];
+		minDeque = new ExtremaDeque(ys, false);
+		maxDeque = new ExtremaDeque(ys, true);
+	}
+
+	/**
+	 * @return max number of data points
+	 */
+	public int getCapacity() {
+		return xs.length;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public double getMinY() {
+		return size == 0 ? Double.POSITIVE_INFINITY : ys[minDeque.first()];
+	}
+
+	@Override
+	public double getMaxY() {
+		return size == 0 ? Double.NEGATIVE_INFINITY : ys[maxDeque.first()];
+	}
+
+	@Override
+	public double getX(int index) {
+		return xs[slot(index)];
+	}
+
+	@Override
+	public double getY(int index) {
+		return ys[slot(index)];
+	}
+
+	@Override
+	public boolean isReadOnly() {
+		return false;
+	}
+
+	@Override
+	public void append(double x, double y) {
+		int slot;
+		if (size == xs.length) {
+			// full, overwrite the oldest
+			slot = start;
+			evict(start);
+			start = next(start);
+			onDataRemoved(1);
+		} else {
+			slot = slot(size);
+			size++;
+		}
+		xs[slot] = x;
+		ys[slot] = y;
+		minDeque.add(slot);
+		maxDeque.add(slot);
+		onDataAppended(y);
+	}
+
+	@Override
+	public void removeFirst(int count) {
+		count = Math.min(count, size);
+		for (int i = 0; i < count; i++) {
+			evict(slot(i));
+		}
+		start = slot(count);
+		size -= count;
+		onDataRemoved(count);
+	}
+
+	/**
+	 * @param index logical index, 0 = oldest
+	 * @return position in the columns
+	 */
+	private int slot(int index) {
+		int slot = start + index;
+		if (slot >= xs.length) {
+			slot -= xs.length;
+		}
+		return slot;
+	}
+
+	private int next(int slot) {
+		return slot + 1 == xs.length ? 0 : slot + 1;
+	}
+
+	/**
+	 * the oldest data point leaves the window
+	 */
+	private void evict(int slot) {
+		minDeque.remove(slot);
+		maxDeque.remove(slot);
+	}
+
+	/**
+	 * monotonic deque of slots. The y values of the slots are
+	 * increasing (min) or decreasing (max) from first to last,
+	 * so the first one is always the extreme of the window.
+	 * Every slot is added and removed once, so both operations are amortized O(1).
+	 */
+	static private class ExtremaDeque {
+		private final double[] ys;
+		private final boolean max;
+		private final int[] slots;
+		private int head;
+		private int count;
+
+		ExtremaDeque(double[] ys, boolean max) {
+			this.ys = ys;
+			this.max = max;
+			this.slots = new int[ys.length];
+		}
+
+		int first() {
+			return slots[head];
+		}
+
+		void add(int slot) {
+			double y = ys[slot];
+			// drop values that can never be the extreme again
+			while (count > 0) {
+				double last = ys[slots[index(count - 1)]];
+				if (max ? last > y : last < y) {
+					break;
+				}
+				count--;
+			}
+			slots[index(count)] = slot;
+			count++;
+		}
+
+		/**
+		 * @param slot the oldest slot of the window
+		 */
+		void remove(int slot) {
+			if (count > 0 && slots[head] == slot) {
+				head = index(1);
+				count--;
+			}
+		}
+
+		private int index(int i) {
+			int index = head + i;
+			return index >= slots.length ? index - slots.length : index;
+		}
+	}
+}
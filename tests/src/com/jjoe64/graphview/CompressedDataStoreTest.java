@@ -0,0 +1,142 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+package com.jjoe64.graphview;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * the compressed blocks must decode to the appended values, bit by bit
+ */
+public class CompressedDataStoreTest extends TestCase {
+	static private final int SIZE = 3500;
+
+	private final double[] xs = new double[SIZE];
+	private final double[] ys = new double[SIZE];
+	private final CompressedDataStore store = new CompressedDataStore();
+
+	@Override
+	protected void setUp() {
+		Random random = new Random(42);
+		double x = 0;
+		for (int i = 0; i < SIZE; i++) {
+			// regular steps with some jumps and repeated x values
+			x += i % 97 == 0 ? random.nextDouble() * 1e6 : i % 13 == 0 ? 0 : 0.5;
+			xs[i] = x;
+			switch (i % 11) {
+			case 0:
+				ys[i] = random.nextDouble() * 1e300;
+				break;
+			case 1:
+				ys[i] = -random.nextDouble();
+				break;
+			case 2:
+				ys[i] = ys[i - 1];
+				break;
+			case 3:
+				ys[i] = i % 3 == 0 ? Double.NaN : -0.0;
+				break;
+			case 4:
+				ys[i] = i % 2 == 0 ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+				break;
+			case 5:
+				ys[i] = Double.MIN_VALUE;
+				break;
+			default:
+				ys[i] = Math.sin(i / 50.0);
+			}
+			store.append(xs[i], ys[i]);
+		}
+	}
+
+	public void testRoundTrip() {
+		assertEquals(SIZE, store.size());
+		assertEquals(SIZE / 1024, store.getBlockCount());
+		assertValues(0);
+	}
+
+	public void testRoundTripAfterRemove() {
+		store.removeFirst(1500);
+		assertEquals(SIZE - 1500, store.size());
+		assertValues(1500);
+		store.removeFirst(1600);
+		assertValues(3100);
+	}
+
+	public void testRangeExtremes() {
+		Random random = new Random(7);
+		checkExtremes(0, SIZE);
+		checkExtremes(0, 1024);
+		checkExtremes(1024, 2048);
+		checkExtremes(1023, 2049);
+		checkExtremes(3072, SIZE);
+		checkExtremes(500, 500);
+		for (int i = 0; i < 500; i++) {
+			int start = random.nextInt(SIZE);
+			checkExtremes(start, start + random.nextInt(SIZE - start + 1));
+		}
+		store.removeFirst(700);
+		checkExtremes(0, store.size());
+		checkExtremes(324, 1348);
+	}
+
+	public void testSearch() {
+		for (int i = 0; i < SIZE; i += 7) {
+			assertEquals(ceiling(xs[i]), store.ceilingIndex(xs[i]));
+			assertEquals(higher(xs[i]), store.higherIndex(xs[i]));
+			assertEquals(ceiling(xs[i] + 0.25), store.ceilingIndex(xs[i] + 0.25));
+		}
+		assertEquals(SIZE, store.ceilingIndex(xs[SIZE - 1] + 1));
+		assertEquals(0, store.ceilingIndex(-1));
+	}
+
+	private void assertValues(int removed) {
+		for (int i = 0; i < store.size(); i++) {
+			assertEquals("x " + (removed + i), Double.doubleToRawLongBits(xs[removed + i]), Double.doubleToRawLongBits(store.getX(i)));
+			assertEquals("y " + (removed + i), Double.doubleToRawLongBits(ys[removed + i]), Double.doubleToRawLongBits(store.getY(i)));
+		}
+	}
+
+	private void checkExtremes(int start, int end) {
+		int removed = SIZE - store.size();
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i = start; i < end; i++) {
+			double y = ys[removed + i];
+			if (y < min) min = y;
+			if (y > max) max = y;
+		}
+		assertEquals("min " + start + ".." + end, min, store.getMinY(start, end), 0);
+		assertEquals("max " + start + ".." + end, max, store.getMaxY(start, end), 0);
+	}
+
+	private int ceiling(double x) {
+		int i = 0;
+		while (i < SIZE && xs[i] < x) i++;
+		return i;
+	}
+
+	private int higher(double x) {
+		int i = 0;
+		while (i < SIZE && xs[i] <= x) i++;
+		return i;
+	}
+}
@@ -0,0 +1,119 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+package com.jjoe64.graphview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Debug;
+import android.test.AndroidTestCase;
+import android.view.View;
+
+/**
+ * drawing a frame that didn't change must not allocate memory
+ */
+public class DrawAllocationTest extends AndroidTestCase {
+	static private final int WIDTH = 800;
+	static private final int HEIGHT = 480;
+	static private final int FRAMES = 100;
+
+	public void testLineGraph() {
+		LineGraphView graph = new LineGraphView(getContext(), "line");
+		graph.addSeries(new GraphViewSeries("sin", null, sine(5000)));
+		graph.setViewPort(1000, 2000);
+		graph.setShowLegend(true);
+		graph.setDrawBackground(true);
+		graph.getGraphViewStyle().setLineGradientColors(new int[] {0xffff0000, 0xff00ff00, 0xff0000ff});
+		assertEquals(0, countAllocations(graph));
+	}
+
+	public void testLineGraphNiceTicks() {
+		LineGraphView graph = new LineGraphView(getContext(), "line");
+		graph.addSeries(new GraphViewSeries("sin", null, sine(5000)));
+		graph.setViewPort(1000, 2000);
+		graph.setNiceTicks(true);
+		assertEquals(0, countAllocations(graph));
+	}
+
+	public void testBarGraph() {
+		BarGraphView graph = new BarGraphView(getContext(), "bar");
+		GraphViewSeries.GraphViewSeriesStyle style = new GraphViewSeries.GraphViewSeriesStyle();
+		style.setValueDependentColor(new ValueDependentColor() {
+			@Override
+			public int get(GraphViewDataInterface data) {
+				return data.getY() > 0 ? 0xff00ff00 : 0xffff0000;
+			}
+		});
+		graph.addSeries(new GraphViewSeries("sin", style, sine(500)));
+		graph.setViewPort(100, 200);
+		assertEquals(0, countAllocations(graph));
+	}
+
+	public void testAggregatedBarGraph() {
+		BarGraphView graph = new BarGraphView(getContext(), "bar");
+		GraphViewSeries.GraphViewSeriesStyle style = new GraphViewSeries.GraphViewSeriesStyle();
+		style.setValueDependentColor(new ValueDependentColor() {
+			@Override
+			public int get(GraphViewDataInterface data) {
+				return data.getY() > 0 ? 0xff00ff00 : 0xffff0000;
+			}
+		});
+		graph.addSeries(new GraphViewSeries("sin", style, sine(100000)));
+		graph.setViewPort(10000, 50000);
+		graph.setAggregation(BarGraphView.Aggregation.SUM);
+		assertEquals(0, countAllocations(graph));
+	}
+
+	static private PrimitiveDataStore sine(int size) {
+		PrimitiveDataStore store = new PrimitiveDataStore(size);
+		for (int i = 0; i < size; i++) {
+			store.append(i, Math.sin(i / 50.0));
+		}
+		return store;
+	}
+
+	/**
+	 * @return allocations of drawing the content and label views FRAMES times,
+	 * after the caches were filled by the first frames
+	 */
+	static private int countAllocations(GraphView graph) {
+		graph.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+				View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+		graph.layout(0, 0, WIDTH, HEIGHT);
+		Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+		for (int i = 0; i < 3; i++) {
+			drawChildren(graph, canvas);
+		}
+
+		Debug.startAllocCounting();
+		Debug.resetThreadAllocCount();
+		for (int i = 0; i < FRAMES; i++) {
+			drawChildren(graph, canvas);
+		}
+		int count = Debug.getThreadAllocCount();
+		Debug.stopAllocCounting();
+		return count;
+	}
+
+	static private void drawChildren(GraphView graph, Canvas canvas) {
+		for (int i = 0; i < graph.getChildCount(); i++) {
+			graph.getChildAt(i).draw(canvas);
+		}
+	}
+}